@@ -4,6 +4,9 @@ import com.tonytaotao.rpc.core.extension.SPI;
 import com.tonytaotao.rpc.core.extension.Scope;
 import com.tonytaotao.rpc.core.Caller;
 import com.tonytaotao.rpc.core.reference.Reference;
+import com.tonytaotao.rpc.core.request.Request;
+import com.tonytaotao.rpc.core.response.Response;
+import com.tonytaotao.rpc.core.response.future.ResponseFuture;
 
 import java.util.List;
 
@@ -17,4 +20,6 @@ public interface Cluster<T> extends Caller<T> {
     List<Reference<T>> getReferences();
 
     LoadBalance<T> getLoadBalance();
+
+    ResponseFuture<Response> callAsync(Request request);
 }
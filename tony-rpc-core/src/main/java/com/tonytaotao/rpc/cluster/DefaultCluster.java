@@ -6,6 +6,8 @@ import com.tonytaotao.rpc.common.UrlParamEnum;
 import com.tonytaotao.rpc.core.response.DefaultResponse;
 import com.tonytaotao.rpc.core.request.Request;
 import com.tonytaotao.rpc.core.response.Response;
+import com.tonytaotao.rpc.core.response.future.DefaultResponseFuture;
+import com.tonytaotao.rpc.core.response.future.ResponseFuture;
 import com.tonytaotao.rpc.core.extension.ExtensionLoader;
 import com.tonytaotao.rpc.common.exception.BusinessRpcException;
 import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
@@ -20,12 +22,22 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 public class DefaultCluster<T> implements Cluster<T>, NotifyListener {
 
+    /** 由服务端决定的参数，客户端必须与服务端一致，合并consumer参数时保留服务端的值 **/
+    private static final Set<String> PROVIDER_PARAMS = new HashSet<>(Arrays.asList(
+            UrlParamEnum.codec.getName(), UrlParamEnum.serialization.getName(), UrlParamEnum.compact.getName(),
+            UrlParamEnum.weight.getName(), UrlParamEnum.warmup.getName(),
+            UrlParamEnum.side.getName(), UrlParamEnum.timestamp.getName()));
+
     private List<URL> registryUrls;
 
     private URL url;
@@ -133,6 +145,40 @@ public class DefaultCluster<T> implements Cluster<T>, NotifyListener {
         return buildErrorResponse(request, new ServiceRpcException("service not available"));
     }
 
+    @Override
+    public ResponseFuture<Response> callAsync(Request request) {
+        final ResponseFuture<Response> result = new DefaultResponseFuture<>(url.getIntParameterByEnum(UrlParamEnum.requestTimeout));
+        if(!available) {
+            result.setResult(buildErrorResponse(request, new ServiceRpcException("service not available")));
+            return result;
+        }
+
+        ResponseFuture<Response> future;
+        try {
+            future = haStrategy.callAsync(request, loadBalance);
+        } catch (Exception e) {
+            completeExceptionally(request, result, e);
+            return result;
+        }
+        future.addListener(f -> {
+            if (f.isSuccess()) {
+                result.setResult(f.getNow());
+            } else {
+                completeExceptionally(request, result, f.cause());
+            }
+        });
+        return result;
+    }
+
+    /** 与同步调用一致：业务异常直接抛出，其他异常包装为错误响应 **/
+    private void completeExceptionally(Request request, ResponseFuture<Response> result, Throwable e) {
+        if (e instanceof BusinessRpcException) {
+            result.setFailure(e);
+        } else {
+            result.setResult(buildErrorResponse(request, e instanceof Exception ? (Exception) e : new FrameworkRpcException(e)));
+        }
+    }
+
     private Response buildErrorResponse(Request request, Exception motanException) {
         DefaultResponse rs = new DefaultResponse();
         rs.setException(motanException);
@@ -142,11 +188,13 @@ public class DefaultCluster<T> implements Cluster<T>, NotifyListener {
 
     @Override
     public void setLoadBalance(LoadBalance<T> loadBalance) {
+        loadBalance.setUrl(url);
         this.loadBalance = loadBalance;
     }
 
     @Override
     public void setHaStrategy(HaStrategy<T> haStrategy) {
+        haStrategy.setUrl(url);
         this.haStrategy = haStrategy;
     }
 
@@ -176,7 +224,7 @@ public class DefaultCluster<T> implements Cluster<T>, NotifyListener {
             }
             Reference<T> reference = getExistingReference(u, registryReferences.get(registryUrl));
             if (reference == null) {
-                URL referenceURL = u.clone0();
+                URL referenceURL = buildReferenceUrl(u);
                 reference = protocol.refer(interfaceClass, referenceURL, u);
             }
             if (reference != null) {
@@ -188,6 +236,21 @@ public class DefaultCluster<T> implements Cluster<T>, NotifyListener {
         refresh();
     }
 
+    /**
+     * Reference及其客户端使用的url：服务端地址和参数，加上consumer配置的参数(超时、连接数、传输层等)，
+     * 同一个参数consumer配置优先
+     */
+    private URL buildReferenceUrl(URL serviceUrl) {
+        URL referenceUrl = serviceUrl.clone0();
+        Map<String, String> parameters = referenceUrl.getParameterMap();
+        for (Map.Entry<String, String> entry : url.getParameterMap().entrySet()) {
+            if (!PROVIDER_PARAMS.contains(entry.getKey())) {
+                parameters.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return referenceUrl;
+    }
+
     private void refresh() {
         List<Reference<T>> references = new ArrayList<>();
         for (List<Reference<T>> refs : registryReferences.values()) {
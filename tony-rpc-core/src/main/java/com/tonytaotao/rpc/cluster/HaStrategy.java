@@ -1,12 +1,23 @@
 package com.tonytaotao.rpc.cluster;
 
+import com.tonytaotao.rpc.common.URL;
 import com.tonytaotao.rpc.core.request.Request;
 import com.tonytaotao.rpc.core.response.Response;
+import com.tonytaotao.rpc.core.response.future.ResponseFuture;
 import com.tonytaotao.rpc.core.extension.SPI;
 import com.tonytaotao.rpc.core.extension.Scope;
 
 @SPI(scope = Scope.PROTOTYPE)
 public interface HaStrategy<T> {
 
-    Response call(Request request, LoadBalance loadBalance);
+    /**
+     * 消费端的url，HaStrategy的参数取自消费端配置
+     * @param url
+     */
+    default void setUrl(URL url) {
+    }
+
+    Response call(Request request, LoadBalance<T> loadBalance);
+
+    ResponseFuture<Response> callAsync(Request request, LoadBalance<T> loadBalance);
 }
@@ -1,6 +1,8 @@
 package com.tonytaotao.rpc.cluster;
 
 
+import com.tonytaotao.rpc.common.URL;
+import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
 import com.tonytaotao.rpc.core.request.Request;
 import com.tonytaotao.rpc.core.extension.SPI;
 import com.tonytaotao.rpc.core.extension.Scope;
@@ -11,7 +13,23 @@ import java.util.List;
 @SPI(scope = Scope.PROTOTYPE)
 public interface LoadBalance<T> {
 
+    /**
+     * 消费端的url，负载均衡的参数取自消费端配置，在setReferences之前调用
+     * @param url
+     */
+    default void setUrl(URL url) {
+    }
+
     void setReferences(List<Reference<T>> references);
 
     Reference<T> select(Request request);
+
+    /**
+     * 当前可选的全部Reference，供并行调用的HaStrategy使用。
+     * 未实现的LoadBalance只能配合逐个选择Reference的HaStrategy使用
+     * @return
+     */
+    default List<Reference<T>> getReferences() {
+        throw new FrameworkRpcException(getClass().getName() + " does not expose references, can not be used with forking or broadcast HaStrategy");
+    }
 }
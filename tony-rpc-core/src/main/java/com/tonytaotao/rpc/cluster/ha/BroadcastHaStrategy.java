@@ -0,0 +1,113 @@
+package com.tonytaotao.rpc.cluster.ha;
+
+import com.tonytaotao.rpc.cluster.HaStrategy;
+import com.tonytaotao.rpc.cluster.LoadBalance;
+import com.tonytaotao.rpc.cluster.merger.Merger;
+import com.tonytaotao.rpc.common.URL;
+import com.tonytaotao.rpc.common.UrlParamEnum;
+import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
+import com.tonytaotao.rpc.common.exception.ServiceRpcException;
+import com.tonytaotao.rpc.core.extension.ExtensionLoader;
+import com.tonytaotao.rpc.core.reference.Reference;
+import com.tonytaotao.rpc.core.request.DefaultRequest;
+import com.tonytaotao.rpc.core.request.Request;
+import com.tonytaotao.rpc.core.response.DefaultResponse;
+import com.tonytaotao.rpc.core.response.Response;
+import com.tonytaotao.rpc.core.response.future.DefaultResponseFuture;
+import com.tonytaotao.rpc.core.response.future.ResponseFuture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 广播调用：并行调用全部Reference，所有响应返回后通过merger指定的Merger合并返回值，适用于按分片查询后汇总的场景。
+ * 任一节点失败或返回异常时整体失败，不返回部分结果
+ */
+public class BroadcastHaStrategy<T> implements HaStrategy<T> {
+
+    private volatile Merger merger = getMerger(UrlParamEnum.merger.getDefaultValue());
+
+    @Override
+    public void setUrl(URL url) {
+        this.merger = getMerger(url.getStrParameterByEnum(UrlParamEnum.merger));
+    }
+
+    @Override
+    public Response call(Request request, LoadBalance<T> loadBalance) {
+        try {
+            return callAsync(request, loadBalance).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FrameworkRpcException("BroadcastHaStrategy call interrupted", e);
+        }
+    }
+
+    @Override
+    public ResponseFuture<Response> callAsync(final Request request, LoadBalance<T> loadBalance) {
+        List<Reference<T>> references = loadBalance.getReferences();
+        if (references == null || references.isEmpty()) {
+            throw new ServiceRpcException("BroadcastHaStrategy No available reference for request:" + request);
+        }
+        references = new ArrayList<>(references);
+
+        URL refUrl = references.get(0).getUrl();
+        final Merger merger = this.merger;
+        final ResponseFuture<Response> result = new DefaultResponseFuture<>(refUrl.getIntParameterByEnum(UrlParamEnum.requestTimeout));
+        final Object[] outcomes = new Object[references.size()];
+        final AtomicInteger remaining = new AtomicInteger(references.size());
+
+        for (int i = 0; i < references.size(); i++) {
+            final int index = i;
+            ResponseFuture<Response> future;
+            try {
+                // Reference会修改请求(attachments、服务编号、超时)，每个Reference使用复制的请求，原请求只被读取
+                future = references.get(i).callAsync(DefaultRequest.copyOf(request));
+            } catch (RuntimeException e) {
+                outcomes[index] = e;
+                if (remaining.decrementAndGet() == 0) {
+                    complete(request, merger, outcomes, result);
+                }
+                continue;
+            }
+            future.addListener(f -> {
+                outcomes[index] = f.isSuccess() ? f.getNow() : f.cause();
+                if (remaining.decrementAndGet() == 0) {
+                    complete(request, merger, outcomes, result);
+                }
+            });
+        }
+        return result;
+    }
+
+    private static Merger getMerger(String name) {
+        return ExtensionLoader.getExtensionLoader(Merger.class).getExtension(name);
+    }
+
+    /** outcomes中为Response或Throwable，由最后一个返回的回调线程执行 **/
+    private void complete(Request request, Merger merger, Object[] outcomes, ResponseFuture<Response> result) {
+        List<Object> values = new ArrayList<>(outcomes.length);
+        for (Object outcome : outcomes) {
+            if (outcome instanceof Throwable) {
+                result.setFailure((Throwable) outcome);
+                return;
+            }
+            Response response = (Response) outcome;
+            if (response.getException() != null) {
+                result.setResult(response);
+                return;
+            }
+            values.add(response.getResult());
+        }
+
+        DefaultResponse response = new DefaultResponse();
+        response.setRequestId(request.getRequestId());
+        try {
+            response.setResult(merger.merge(values));
+        } catch (RuntimeException e) {
+            result.setFailure(e instanceof FrameworkRpcException ? e : new FrameworkRpcException("BroadcastHaStrategy merge result failure", e));
+            return;
+        }
+        result.setResult(response);
+    }
+}
@@ -5,13 +5,20 @@ import com.tonytaotao.rpc.cluster.HaStrategy;
 import com.tonytaotao.rpc.cluster.LoadBalance;
 import com.tonytaotao.rpc.core.request.Request;
 import com.tonytaotao.rpc.core.response.Response;
+import com.tonytaotao.rpc.core.response.future.ResponseFuture;
 import com.tonytaotao.rpc.core.reference.Reference;
 
 public class FailfastHaStrategy<T> implements HaStrategy<T> {
 
     @Override
-    public Response call(Request request, LoadBalance loadBalance) {
+    public Response call(Request request, LoadBalance<T> loadBalance) {
         Reference<T> reference = loadBalance.select(request);
         return reference.call(request);
     }
+
+    @Override
+    public ResponseFuture<Response> callAsync(Request request, LoadBalance<T> loadBalance) {
+        Reference<T> reference = loadBalance.select(request);
+        return reference.callAsync(request);
+    }
 }
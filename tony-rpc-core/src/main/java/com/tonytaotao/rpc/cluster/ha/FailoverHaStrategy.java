@@ -5,8 +5,11 @@ import com.tonytaotao.rpc.common.URL;
 import com.tonytaotao.rpc.common.UrlParamEnum;
 import com.tonytaotao.rpc.core.request.Request;
 import com.tonytaotao.rpc.core.response.Response;
+import com.tonytaotao.rpc.core.response.future.DefaultResponseFuture;
+import com.tonytaotao.rpc.core.response.future.ResponseFuture;
 import com.tonytaotao.rpc.common.exception.BusinessRpcException;
 import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
+import com.tonytaotao.rpc.common.exception.OverloadRpcException;
 import com.tonytaotao.rpc.core.reference.Reference;
 import com.tonytaotao.rpc.cluster.HaStrategy;
 import com.tonytaotao.rpc.cluster.LoadBalance;
@@ -17,7 +20,7 @@ public class FailoverHaStrategy<T> implements HaStrategy<T> {
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     @Override
-    public Response call(Request request, LoadBalance loadBalance) {
+    public Response call(Request request, LoadBalance<T> loadBalance) {
         Reference<T> reference = loadBalance.select(request);
         URL refUrl = reference.getUrl();
         int tryCount = refUrl.getIntParameterByEnum(UrlParamEnum.retries);
@@ -27,7 +30,13 @@ public class FailoverHaStrategy<T> implements HaStrategy<T> {
         for (int i = 0; i <= tryCount; i++) {
             reference = loadBalance.select(request);
             try {
-                return reference.call(request);
+                Response response = reference.call(request);
+                // 服务端过载拒绝时请求未被执行，重试其他节点
+                if (response.getException() instanceof OverloadRpcException && i < tryCount) {
+                    logger.warn(String.format("FailoverHaStrategy Call overload for request:%s error=%s", request, response.getException().getMessage()));
+                    continue;
+                }
+                return response;
             } catch (RuntimeException e) {
                 // 对于业务异常，直接抛出
                 if (e instanceof BusinessRpcException) {
@@ -40,4 +49,50 @@ public class FailoverHaStrategy<T> implements HaStrategy<T> {
         }
         throw new FrameworkRpcException("FailoverHaStrategy.call should not come here!");
     }
+
+    @Override
+    public ResponseFuture<Response> callAsync(Request request, LoadBalance<T> loadBalance) {
+        Reference<T> reference = loadBalance.select(request);
+        URL refUrl = reference.getUrl();
+        int tryCount = refUrl.getIntParameterByEnum(UrlParamEnum.retries);
+        if(tryCount<0){
+            tryCount = 0;
+        }
+        ResponseFuture<Response> result = new DefaultResponseFuture<>(refUrl.getIntParameterByEnum(UrlParamEnum.requestTimeout));
+        callAsync(request, loadBalance, 0, tryCount, result);
+        return result;
+    }
+
+    /** 失败回调中重新选择Reference重试，不阻塞调用线程 **/
+    private void callAsync(final Request request, final LoadBalance<T> loadBalance, final int i, final int tryCount,
+                           final ResponseFuture<Response> result) {
+        ResponseFuture<Response> future;
+        try {
+            Reference<T> reference = loadBalance.select(request);
+            future = reference.callAsync(request);
+        } catch (RuntimeException e) {
+            retryOrFail(request, loadBalance, i, tryCount, result, e);
+            return;
+        }
+        future.addListener(f -> {
+            if (f.isSuccess() && f.getNow().getException() instanceof OverloadRpcException && i < tryCount) {
+                retryOrFail(request, loadBalance, i, tryCount, result, f.getNow().getException());
+            } else if (f.isSuccess()) {
+                result.setResult(f.getNow());
+            } else {
+                retryOrFail(request, loadBalance, i, tryCount, result, f.cause());
+            }
+        });
+    }
+
+    private void retryOrFail(Request request, LoadBalance<T> loadBalance, int i, int tryCount,
+                             ResponseFuture<Response> result, Throwable e) {
+        // 对于业务异常，直接返回
+        if (e instanceof BusinessRpcException || i >= tryCount) {
+            result.setFailure(e);
+            return;
+        }
+        logger.warn(String.format("FailoverHaStrategy callAsync false for request:%s error=%s", request, e.getMessage()));
+        callAsync(request, loadBalance, i + 1, tryCount, result);
+    }
 }
@@ -0,0 +1,112 @@
+package com.tonytaotao.rpc.cluster.ha;
+
+import com.tonytaotao.rpc.cluster.HaStrategy;
+import com.tonytaotao.rpc.cluster.LoadBalance;
+import com.tonytaotao.rpc.common.URL;
+import com.tonytaotao.rpc.common.UrlParamEnum;
+import com.tonytaotao.rpc.common.exception.BusinessRpcException;
+import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
+import com.tonytaotao.rpc.common.exception.ServiceRpcException;
+import com.tonytaotao.rpc.core.reference.Reference;
+import com.tonytaotao.rpc.core.request.DefaultRequest;
+import com.tonytaotao.rpc.core.request.Request;
+import com.tonytaotao.rpc.core.response.Response;
+import com.tonytaotao.rpc.core.response.future.DefaultResponseFuture;
+import com.tonytaotao.rpc.core.response.future.ResponseFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并行调用：同时向forks个不同的Reference发送请求，取第一个返回的结果，全部失败时才失败。
+ * 请求会在多个节点执行，只适用于幂等的服务
+ */
+public class ForkingHaStrategy<T> implements HaStrategy<T> {
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private volatile int forks = UrlParamEnum.forks.getIntValue();
+
+    @Override
+    public void setUrl(URL url) {
+        this.forks = url.getIntParameterByEnum(UrlParamEnum.forks);
+    }
+
+    @Override
+    public Response call(Request request, LoadBalance<T> loadBalance) {
+        try {
+            return callAsync(request, loadBalance).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FrameworkRpcException("ForkingHaStrategy call interrupted", e);
+        }
+    }
+
+    @Override
+    public ResponseFuture<Response> callAsync(final Request request, LoadBalance<T> loadBalance) {
+        List<Reference<T>> forks = selectForks(request, loadBalance);
+        URL refUrl = forks.get(0).getUrl();
+        final ResponseFuture<Response> result = new DefaultResponseFuture<>(refUrl.getIntParameterByEnum(UrlParamEnum.requestTimeout));
+        final AtomicInteger remaining = new AtomicInteger(forks.size());
+
+        for (Reference<T> reference : forks) {
+            ResponseFuture<Response> future;
+            try {
+                // Reference会修改请求(attachments、服务编号、超时)，每个Reference使用复制的请求，原请求只被读取
+                future = reference.callAsync(DefaultRequest.copyOf(request));
+            } catch (RuntimeException e) {
+                onFailure(request, result, remaining, e);
+                continue;
+            }
+            future.addListener(f -> {
+                if (!f.isSuccess()) {
+                    onFailure(request, result, remaining, f.cause());
+                } else if (f.getNow().getException() != null && !(f.getNow().getException() instanceof BusinessRpcException)) {
+                    // 非业务异常的响应，其他节点都失败时才返回
+                    if (remaining.decrementAndGet() == 0) {
+                        result.setResult(f.getNow());
+                    }
+                } else {
+                    result.setResult(f.getNow());
+                }
+            });
+        }
+        return result;
+    }
+
+    private void onFailure(Request request, ResponseFuture<Response> result, AtomicInteger remaining, Throwable e) {
+        logger.warn(String.format("ForkingHaStrategy call false for request:%s error=%s", request, e.getMessage()));
+        if (remaining.decrementAndGet() == 0) {
+            result.setFailure(e);
+        }
+    }
+
+    /** 选出forks个不同的Reference，Reference不足时全部调用 **/
+    private List<Reference<T>> selectForks(Request request, LoadBalance<T> loadBalance) {
+        List<Reference<T>> references = loadBalance.getReferences();
+        if (references == null || references.isEmpty()) {
+            throw new ServiceRpcException("ForkingHaStrategy No available reference for request:" + request);
+        }
+        Reference<T> first = loadBalance.select(request);
+        int forks = this.forks;
+        if (forks <= 1) {
+            return Collections.singletonList(first);
+        }
+        if (forks >= references.size()) {
+            return new ArrayList<>(references);
+        }
+
+        List<Reference<T>> selected = new ArrayList<>(forks);
+        selected.add(first);
+        for (int i = 0; i < forks * 3 && selected.size() < forks; i++) {
+            Reference<T> reference = loadBalance.select(request);
+            if (!selected.contains(reference)) {
+                selected.add(reference);
+            }
+        }
+        return selected;
+    }
+}
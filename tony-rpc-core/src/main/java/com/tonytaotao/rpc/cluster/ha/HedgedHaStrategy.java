@@ -0,0 +1,266 @@
+package com.tonytaotao.rpc.cluster.ha;
+
+import com.tonytaotao.rpc.cluster.HaStrategy;
+import com.tonytaotao.rpc.cluster.LoadBalance;
+import com.tonytaotao.rpc.common.Constants;
+import com.tonytaotao.rpc.common.URL;
+import com.tonytaotao.rpc.common.UrlParamEnum;
+import com.tonytaotao.rpc.common.exception.BusinessRpcException;
+import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
+import com.tonytaotao.rpc.core.reference.Reference;
+import com.tonytaotao.rpc.core.request.DefaultRequest;
+import com.tonytaotao.rpc.core.request.Request;
+import com.tonytaotao.rpc.core.response.Response;
+import com.tonytaotao.rpc.core.response.future.DefaultResponseFuture;
+import com.tonytaotao.rpc.core.response.future.ResponseFuture;
+import com.tonytaotao.rpc.netty.NonBlockingThreadFactory;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 对冲请求：先向一个Reference发送请求，超过该服务响应时间的hedgePercentile分位(默认p95)仍未返回时，
+ * 向另一个Reference发送相同请求，取先返回的结果。
+ * <ul>
+ *     <li>分位值来自最近的响应时间采样，每个服务(cluster)独立统计，样本不足时不对冲</li>
+ *     <li>全局对冲预算：每个请求存入hedgeRatio个令牌，每次对冲消耗1个，额外请求不超过该比例</li>
+ *     <li>首个请求在对冲前失败时立即发送对冲请求(同样消耗预算)</li>
+ * </ul>
+ * 对冲请求可能在两个节点都被执行，只适用于幂等的服务
+ */
+public class HedgedHaStrategy<T> implements HaStrategy<T> {
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /** 令牌以千分之一为单位 **/
+    private static final long TOKEN = 1000;
+    /** 预算上限，避免长时间无对冲后集中对冲 **/
+    private static final long MAX_BUDGET = 100 * TOKEN;
+    private static final AtomicLong BUDGET = new AtomicLong();
+
+    private final LatencySamples samples = new LatencySamples();
+
+    @Override
+    public Response call(Request request, LoadBalance<T> loadBalance) {
+        try {
+            return callAsync(request, loadBalance).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FrameworkRpcException("HedgedHaStrategy call interrupted", e);
+        }
+    }
+
+    @Override
+    public ResponseFuture<Response> callAsync(Request request, LoadBalance<T> loadBalance) {
+        Reference<T> primary = loadBalance.select(request);
+        URL refUrl = primary.getUrl();
+        int timeout = refUrl.getIntParameterByEnum(UrlParamEnum.requestTimeout);
+        deposit(Double.parseDouble(refUrl.getStrParameterByEnum(UrlParamEnum.hedgeRatio)));
+
+        Hedge hedge = new Hedge(request, loadBalance, primary, timeout);
+        hedge.send(primary, request);
+
+        long delay = samples.getPercentile(Double.parseDouble(refUrl.getStrParameterByEnum(UrlParamEnum.hedgePercentile)));
+        if (delay <= 0 || delay >= TimeUnit.MILLISECONDS.toNanos(timeout)) {
+            hedge.hedge(false);
+        } else if (!hedge.result.isDone()) {
+            final Timeout timer = HedgeTimer.TIMER.newTimeout(t -> hedge.hedge(true), delay, TimeUnit.NANOSECONDS);
+            hedge.result.addListener(f -> timer.cancel());
+        }
+        return hedge.result;
+    }
+
+    private class Hedge {
+        private final Request request;
+        private final LoadBalance<T> loadBalance;
+        private final Reference<T> primary;
+        private final int timeout;
+        private final long startNanos = System.nanoTime();
+        private final ResponseFuture<Response> result;
+
+        /** 进行中的请求数，加上尚未决定是否对冲时的1 **/
+        private final AtomicInteger outstanding = new AtomicInteger(2);
+        private final AtomicBoolean hedgeDecided = new AtomicBoolean();
+        /** 最后一次失败：Throwable或带非业务异常的Response **/
+        private volatile Object lastFailure;
+
+        Hedge(Request request, LoadBalance<T> loadBalance, Reference<T> primary, int timeout) {
+            this.request = request;
+            this.loadBalance = loadBalance;
+            this.primary = primary;
+            this.timeout = timeout;
+            this.result = new DefaultResponseFuture<>(timeout);
+        }
+
+        void send(Reference<T> reference, Request request) {
+            final long sendNanos = System.nanoTime();
+            ResponseFuture<Response> future;
+            try {
+                future = reference.callAsync(request);
+            } catch (RuntimeException e) {
+                onFailure(e);
+                return;
+            }
+            future.addListener(f -> {
+                if (!f.isSuccess()) {
+                    onFailure(f.cause());
+                    return;
+                }
+                Response response = f.getNow();
+                if (response.getException() != null && !(response.getException() instanceof BusinessRpcException)) {
+                    onFailure(response);
+                    return;
+                }
+                // 对冲中落后的请求同样记录，否则慢请求被对冲掉后分位值会偏低
+                samples.record(System.nanoTime() - sendNanos);
+                result.setResult(response);
+            });
+        }
+
+        /**
+         * 决定是否发送对冲请求，只执行一次
+         * @param send false时只释放对冲占位
+         */
+        void hedge(boolean send) {
+            if (!hedgeDecided.compareAndSet(false, true)) {
+                return;
+            }
+            if (send && !result.isDone()) {
+                Request hedgeRequest = newHedgeRequest();
+                Reference<T> reference = hedgeRequest != null ? selectOther() : null;
+                if (reference != null && withdraw()) {
+                    outstanding.incrementAndGet();
+                    send(reference, hedgeRequest);
+                }
+            }
+            if (outstanding.decrementAndGet() == 0) {
+                fail();
+            }
+        }
+
+        private void onFailure(Object failure) {
+            lastFailure = failure;
+            if (failure instanceof Throwable) {
+                logger.warn(String.format("HedgedHaStrategy call false for request:%s error=%s", request, ((Throwable) failure).getMessage()));
+            }
+            if (outstanding.decrementAndGet() == 0) {
+                fail();
+            } else {
+                hedge(true);
+            }
+        }
+
+        private void fail() {
+            Object failure = lastFailure;
+            if (failure instanceof Response) {
+                result.setResult((Response) failure);
+            } else {
+                result.setFailure((Throwable) failure);
+            }
+        }
+
+        /** 对冲请求使用新的requestId，超时时间为原请求剩余的时间 **/
+        private Request newHedgeRequest() {
+            long remaining = (request.getTimeout() > 0 ? request.getTimeout() : timeout) - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            if (remaining <= 0) {
+                return null;
+            }
+            DefaultRequest hedgeRequest = DefaultRequest.copyOf(request);
+            hedgeRequest.setTimeout((int) remaining);
+            return hedgeRequest;
+        }
+
+        private Reference<T> selectOther() {
+            for (int i = 0; i < 3; i++) {
+                Reference<T> reference = loadBalance.select(request);
+                if (reference != primary && reference.isAvailable()) {
+                    return reference;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static void deposit(double ratio) {
+        long tokens = (long) (ratio * TOKEN);
+        if (tokens <= 0) {
+            return;
+        }
+        long current;
+        do {
+            current = BUDGET.get();
+            if (current >= MAX_BUDGET) {
+                return;
+            }
+        } while (!BUDGET.compareAndSet(current, Math.min(MAX_BUDGET, current + tokens)));
+    }
+
+    private static boolean withdraw() {
+        long current;
+        do {
+            current = BUDGET.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!BUDGET.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    /**
+     * 最近SIZE个响应时间的环形采样，分位值每隔RECOMPUTE_INTERVAL个样本重新排序计算一次
+     */
+    private static class LatencySamples {
+        private static final int SIZE = 1024;
+        private static final int MIN_SAMPLES = 100;
+        private static final int RECOMPUTE_INTERVAL = 128;
+
+        private final AtomicLongArray ring = new AtomicLongArray(SIZE);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong nextRecompute = new AtomicLong(MIN_SAMPLES);
+
+        private volatile double cachedQuantile;
+        private volatile long cachedPercentile = -1;
+
+        void record(long nanos) {
+            long n = count.getAndIncrement();
+            ring.lazySet((int) (n & (SIZE - 1)), nanos);
+        }
+
+        /**
+         * @return 分位值(ns)，样本不足时返回-1
+         */
+        long getPercentile(double quantile) {
+            long n = count.get();
+            long next = nextRecompute.get();
+            if ((n >= next || quantile != cachedQuantile) && n >= MIN_SAMPLES
+                    && nextRecompute.compareAndSet(next, n + RECOMPUTE_INTERVAL)) {
+                int size = (int) Math.min(n, SIZE);
+                long[] values = new long[size];
+                for (int i = 0; i < size; i++) {
+                    values[i] = ring.get(i);
+                }
+                Arrays.sort(values);
+                cachedQuantile = quantile;
+                cachedPercentile = values[Math.min(size - 1, (int) (size * quantile))];
+            }
+            return cachedPercentile;
+        }
+    }
+
+    /**
+     * 对冲定时器，第一次使用时创建。对冲请求直接在定时器线程发送，
+     * 连接未建立或channel不可写时立即失败而不是等待，不会拖慢其他请求的对冲
+     */
+    private static class HedgeTimer {
+        private static final Timer TIMER = new HashedWheelTimer(
+                new NonBlockingThreadFactory(String.format("%s-%s", Constants.FRAMEWORK_NAME, "hedge"), true), 1, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,221 @@
+package com.tonytaotao.rpc.cluster.loadbalance;
+
+import com.google.common.hash.Hashing;
+import com.tonytaotao.rpc.cluster.LoadBalance;
+import com.tonytaotao.rpc.common.URL;
+import com.tonytaotao.rpc.common.UrlParamEnum;
+import com.tonytaotao.rpc.common.exception.ServiceRpcException;
+import com.tonytaotao.rpc.core.reference.Reference;
+import com.tonytaotao.rpc.core.request.Request;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一致性哈希：相同参数的请求总是落到同一个节点，适合服务端按key做本地缓存的场景。
+ * <ul>
+ *     <li>每个Reference在环上有hashNodes个虚拟节点，Reference变化时只计算新增节点，与原有的环归并</li>
+ *     <li>哈希key取自hashArguments指定下标的参数，参数需要按值实现hashCode</li>
+ *     <li>有界负载：节点的活跃调用数达到平均值的hashLoadFactor倍后，顺时针溢出到下一个节点</li>
+ * </ul>
+ */
+public class ConsistentHashLoadBalance<T> implements LoadBalance<T> {
+
+    private volatile Ring<T> ring = new Ring<>(new long[0], newReferenceArray(0), Collections.emptyList());
+
+    /** 总活跃调用数的采样间隔(ns)，避免每次选择都遍历全部Reference **/
+    private static final long ACTIVE_SAMPLE_INTERVAL = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private volatile int[] argumentIndexes = parseIndexes(UrlParamEnum.hashArguments.getDefaultValue());
+    private volatile int virtualNodes = UrlParamEnum.hashNodes.getIntValue();
+    private volatile double loadFactor = Double.parseDouble(UrlParamEnum.hashLoadFactor.getDefaultValue());
+
+    private volatile long totalActive;
+    private volatile long totalActiveSampleTime = System.nanoTime() - ACTIVE_SAMPLE_INTERVAL;
+
+    @Override
+    public synchronized void setUrl(URL url) {
+        this.argumentIndexes = parseIndexes(url.getStrParameterByEnum(UrlParamEnum.hashArguments));
+        this.virtualNodes = Math.max(1, url.getIntParameterByEnum(UrlParamEnum.hashNodes));
+        this.loadFactor = Math.max(1.0, Double.parseDouble(url.getStrParameterByEnum(UrlParamEnum.hashLoadFactor)));
+    }
+
+    @Override
+    public synchronized void setReferences(List<Reference<T>> references) {
+        Ring<T> old = this.ring;
+        Set<Reference<T>> current = newIdentitySet(references);
+        Set<Reference<T>> existing = newIdentitySet(old.references);
+
+        // 只计算新增Reference的虚拟节点
+        int addedCount = 0;
+        for (Reference<T> reference : references) {
+            if (!existing.contains(reference)) {
+                addedCount++;
+            }
+        }
+        long[] addedHashes = new long[addedCount * virtualNodes];
+        Reference<T>[] addedOwners = newReferenceArray(addedHashes.length);
+        int n = 0;
+        for (Reference<T> reference : references) {
+            if (!existing.contains(reference)) {
+                String key = reference.getServiceUrl().getHostPortString();
+                for (int i = 0; i < virtualNodes; i++, n++) {
+                    addedHashes[n] = Hashing.murmur3_128().hashString(key + "#" + i, StandardCharsets.UTF_8).asLong();
+                    addedOwners[n] = reference;
+                }
+            }
+        }
+        sort(addedHashes, addedOwners);
+
+        // 原有的环去掉已下线的Reference后与新增节点归并，保持有序
+        int keptCount = 0;
+        for (Reference<T> owner : old.owners) {
+            if (current.contains(owner)) {
+                keptCount++;
+            }
+        }
+        long[] hashes = new long[keptCount + addedHashes.length];
+        Reference<T>[] owners = newReferenceArray(hashes.length);
+        int i = 0, j = 0, k = 0;
+        while (k < hashes.length) {
+            while (i < old.hashes.length && !current.contains(old.owners[i])) {
+                i++;
+            }
+            if (j >= addedHashes.length || (i < old.hashes.length && old.hashes[i] <= addedHashes[j])) {
+                hashes[k] = old.hashes[i];
+                owners[k++] = old.owners[i++];
+            } else {
+                hashes[k] = addedHashes[j];
+                owners[k++] = addedOwners[j++];
+            }
+        }
+
+        this.ring = new Ring<>(hashes, owners, references);
+    }
+
+    @Override
+    public List<Reference<T>> getReferences() {
+        return ring.references;
+    }
+
+    @Override
+    public Reference<T> select(Request request) {
+        Ring<T> ring = this.ring;
+        int size = ring.references.size();
+        if (size == 0) {
+            throw new ServiceRpcException("ConsistentHashLoadBalance No available reference for request:" + request);
+        }
+        if (size == 1) {
+            return ring.references.get(0);
+        }
+
+        int length = ring.hashes.length;
+        int index = Arrays.binarySearch(ring.hashes, hash(request));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        if (index == length) {
+            index = 0;
+        }
+
+        // 有界负载：容量为平均活跃调用数的loadFactor倍
+        long capacity = (long) Math.ceil(loadFactor * (getTotalActive(ring) + 1) / size);
+        for (int i = 0; i < length; i++) {
+            Reference<T> reference = ring.owners[(index + i) % length];
+            if (reference.activeCount() < capacity) {
+                return reference;
+            }
+        }
+        return ring.owners[index];
+    }
+
+    private long hash(Request request) {
+        Object[] arguments = request.getArguments();
+        long h = 1;
+        for (int argumentIndex : argumentIndexes) {
+            Object argument = arguments != null && argumentIndex < arguments.length ? arguments[argumentIndex] : null;
+            h = 31 * h + (argument == null ? 0 : argument.hashCode());
+        }
+        return mix(h);
+    }
+
+    /** murmur3 fmix64，将参数的hashCode均匀分布到整个long空间 **/
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /** 全部Reference的活跃调用数之和，每ACTIVE_SAMPLE_INTERVAL最多重新统计一次，期间使用上次的值 **/
+    private long getTotalActive(Ring<T> ring) {
+        long now = System.nanoTime();
+        if (now - totalActiveSampleTime < ACTIVE_SAMPLE_INTERVAL) {
+            return totalActive;
+        }
+        totalActiveSampleTime = now;
+        long total = 0;
+        for (Reference<T> reference : ring.references) {
+            total += reference.activeCount();
+        }
+        totalActive = total;
+        return total;
+    }
+
+    private static int[] parseIndexes(String value) {
+        String[] indexes = value.trim().split("\\s*,\\s*");
+        int[] result = new int[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            result[i] = Integer.parseInt(indexes[i]);
+        }
+        return result;
+    }
+
+    private static <T> void sort(long[] hashes, Reference<T>[] owners) {
+        Integer[] order = new Integer[hashes.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> hashes[i]));
+
+        long[] sortedHashes = new long[hashes.length];
+        Reference<T>[] sortedOwners = newReferenceArray(hashes.length);
+        for (int i = 0; i < order.length; i++) {
+            sortedHashes[i] = hashes[order[i]];
+            sortedOwners[i] = owners[order[i]];
+        }
+        System.arraycopy(sortedHashes, 0, hashes, 0, hashes.length);
+        System.arraycopy(sortedOwners, 0, owners, 0, owners.length);
+    }
+
+    private static <T> Set<Reference<T>> newIdentitySet(List<Reference<T>> references) {
+        Set<Reference<T>> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        set.addAll(references);
+        return set;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Reference<T>[] newReferenceArray(int length) {
+        return (Reference<T>[]) new Reference<?>[length];
+    }
+
+    private static final class Ring<T> {
+        private final long[] hashes;
+        private final Reference<T>[] owners;
+        private final List<Reference<T>> references;
+
+        Ring(long[] hashes, Reference<T>[] owners, List<Reference<T>> references) {
+            this.hashes = hashes;
+            this.owners = owners;
+            this.references = references;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.tonytaotao.rpc.cluster.loadbalance;
+
+import com.tonytaotao.rpc.cluster.LoadBalance;
+import com.tonytaotao.rpc.common.exception.ServiceRpcException;
+import com.tonytaotao.rpc.core.request.Request;
+import com.tonytaotao.rpc.core.reference.Reference;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 最少活跃调用数：随机取两个Reference，选择正在进行的调用较少的一个(power of two choices)，
+ * 选择开销与Reference数量无关。GC停顿等原因变慢的节点积压的调用多，会被自然避开
+ */
+public class LeastActiveLoadBalance<T> implements LoadBalance<T> {
+    private volatile List<Reference<T>> references;
+
+    @Override
+    public void setReferences(List<Reference<T>> references) {
+        this.references = references;
+    }
+
+    @Override
+    public List<Reference<T>> getReferences() {
+        return references;
+    }
+
+    @Override
+    public Reference<T> select(Request request) {
+        List<Reference<T>> references = this.references;
+        int size = references.size();
+        if (size == 0) {
+            throw new ServiceRpcException("LeastActiveLoadBalance No available reference for request:" + request);
+        }
+        if (size == 1) {
+            return references.get(0);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        // 第二个在其余size-1个中选取，保证与第一个不同
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+
+        Reference<T> a = references.get(first);
+        Reference<T> b = references.get(second);
+        if (a.isAvailable() != b.isAvailable()) {
+            return a.isAvailable() ? a : b;
+        }
+        return a.activeCount() <= b.activeCount() ? a : b;
+    }
+}
@@ -0,0 +1,53 @@
+package com.tonytaotao.rpc.cluster.loadbalance;
+
+import com.tonytaotao.rpc.cluster.LoadBalance;
+import com.tonytaotao.rpc.common.exception.ServiceRpcException;
+import com.tonytaotao.rpc.core.reference.Reference;
+import com.tonytaotao.rpc.core.request.Request;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 延迟感知：随机取两个Reference，选择 peak-EWMA延迟 × (活跃调用数+1) 较小的一个。
+ * 延迟在客户端从发出请求到收到响应计时，包含网络与服务端排队，单个节点抖动时其代价立即升高而被避开
+ */
+public class PeakEwmaLoadBalance<T> implements LoadBalance<T> {
+    private volatile List<Reference<T>> references;
+
+    @Override
+    public void setReferences(List<Reference<T>> references) {
+        this.references = references;
+    }
+
+    @Override
+    public List<Reference<T>> getReferences() {
+        return references;
+    }
+
+    @Override
+    public Reference<T> select(Request request) {
+        List<Reference<T>> references = this.references;
+        int size = references.size();
+        if (size == 0) {
+            throw new ServiceRpcException("PeakEwmaLoadBalance No available reference for request:" + request);
+        }
+        if (size == 1) {
+            return references.get(0);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+
+        Reference<T> a = references.get(first);
+        Reference<T> b = references.get(second);
+        if (a.isAvailable() != b.isAvailable()) {
+            return a.isAvailable() ? a : b;
+        }
+        return a.getStats().getCost(a.activeCount()) <= b.getStats().getCost(b.activeCount()) ? a : b;
+    }
+}
@@ -15,6 +15,11 @@ public class RandomLoadBalance<T> implements LoadBalance<T> {
         this.references = references;
     }
 
+    @Override
+    public List<Reference<T>> getReferences() {
+        return references;
+    }
+
     @Override
     public Reference select(Request request) {
         int idx = (int) (ThreadLocalRandom.current().nextDouble() * references.size());
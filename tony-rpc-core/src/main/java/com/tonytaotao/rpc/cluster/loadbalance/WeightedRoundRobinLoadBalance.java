@@ -0,0 +1,195 @@
+package com.tonytaotao.rpc.cluster.loadbalance;
+
+import com.tonytaotao.rpc.cluster.LoadBalance;
+import com.tonytaotao.rpc.common.Constants;
+import com.tonytaotao.rpc.common.URL;
+import com.tonytaotao.rpc.common.UrlParamEnum;
+import com.tonytaotao.rpc.common.exception.ServiceRpcException;
+import com.tonytaotao.rpc.core.reference.Reference;
+import com.tonytaotao.rpc.core.request.Request;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 平滑加权轮询：权重取自服务url的weight，刚注册的节点在warmup时间内按启动时长线性增加权重，
+ * 避免JIT未预热的节点一上线就承担全部流量。
+ * <ul>
+ *     <li>按平滑加权轮询(nginx)预先生成调度序列，选择时只做一次原子自增，不加锁</li>
+ *     <li>预热期内每隔一段时间在后台线程重新计算权重生成新序列，调用线程不参与计算，继续使用旧序列</li>
+ * </ul>
+ */
+public class WeightedRoundRobinLoadBalance<T> implements LoadBalance<T> {
+
+    /** 预热期内重新计算权重的间隔(ms) **/
+    private static final long REBUILD_INTERVAL = 1000;
+    /** 调度序列长度上限为Reference数的倍数，权重没有公约数时按比例缩小 **/
+    private static final int MAX_SLOTS_PER_REFERENCE = 64;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile Schedule<T> schedule = new Schedule<>(Collections.emptyList(), newReferenceArray(0), false);
+
+    @Override
+    public void setReferences(List<Reference<T>> references) {
+        rebuildLock.lock();
+        try {
+            this.schedule = build(references, System.currentTimeMillis());
+            scheduleRebuild(this.schedule);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Reference<T>> getReferences() {
+        return schedule.references;
+    }
+
+    @Override
+    public Reference<T> select(Request request) {
+        Reference<T>[] slots = schedule.slots;
+        if (slots.length == 0) {
+            throw new ServiceRpcException("WeightedRoundRobinLoadBalance No available reference for request:" + request);
+        }
+        return slots[(int) ((sequence.getAndIncrement() & Long.MAX_VALUE) % slots.length)];
+    }
+
+    /** 预热期内的序列在REBUILD_INTERVAL后由后台线程重新计算，预热结束后不再调度 **/
+    private void scheduleRebuild(final Schedule<T> expected) {
+        if (expected.warmingUp) {
+            RebuildExecutor.EXECUTOR.schedule(() -> rebuild(expected), REBUILD_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void rebuild(Schedule<T> expected) {
+        rebuildLock.lock();
+        try {
+            // 期间setReferences已生成新序列并重新调度
+            if (expected != this.schedule) {
+                return;
+            }
+            this.schedule = build(expected.references, System.currentTimeMillis());
+            scheduleRebuild(this.schedule);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private static <T> Schedule<T> build(List<Reference<T>> references, long now) {
+        int size = references.size();
+        if (size == 0) {
+            return new Schedule<>(references, newReferenceArray(0), false);
+        }
+        int[] weights = new int[size];
+        boolean warmingUp = false;
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            URL url = references.get(i).getServiceUrl();
+            int weight = Math.max(0, url.getIntParameterByEnum(UrlParamEnum.weight));
+            int warmup = url.getIntParameterByEnum(UrlParamEnum.warmup);
+            long uptime = now - getTimestamp(url);
+            if (weight > 0 && warmup > 0 && uptime < warmup) {
+                weight = uptime <= 0 ? 1 : (int) Math.max(1, weight * uptime / warmup);
+                warmingUp = true;
+            }
+            weights[i] = weight;
+            total += weight;
+        }
+        if (total == 0) {
+            // 全部权重为0时平均分配
+            for (int i = 0; i < size; i++) {
+                weights[i] = 1;
+            }
+            total = size;
+        }
+
+        total = normalize(weights, total, (long) size * MAX_SLOTS_PER_REFERENCE);
+
+        // 平滑加权轮询：每轮所有节点加上自身权重，选出当前值最大的节点并减去总权重
+        Reference<T>[] slots = newReferenceArray((int) total);
+        long[] current = new long[size];
+        for (int n = 0; n < slots.length; n++) {
+            int selected = -1;
+            for (int i = 0; i < size; i++) {
+                current[i] += weights[i];
+                if (weights[i] > 0 && (selected < 0 || current[i] > current[selected])) {
+                    selected = i;
+                }
+            }
+            current[selected] -= total;
+            slots[n] = references.get(selected);
+        }
+
+        return new Schedule<>(references, slots, warmingUp);
+    }
+
+    /**
+     * 权重除以最大公约数，仍超过上限时按比例缩小(权重大于0的节点至少保留1)
+     * @return 处理后的总权重
+     */
+    private static long normalize(int[] weights, long total, long maxTotal) {
+        int gcd = 0;
+        for (int weight : weights) {
+            gcd = gcd(gcd, weight);
+        }
+        double scale = total / gcd > maxTotal ? (double) maxTotal / total : 1d / gcd;
+
+        long result = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] > 0) {
+                weights[i] = (int) Math.max(1, Math.round(weights[i] * scale));
+                result += weights[i];
+            }
+        }
+        return result;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private static long getTimestamp(URL url) {
+        try {
+            return Long.parseLong(url.getStrParameterByEnum(UrlParamEnum.timestamp));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Reference<T>[] newReferenceArray(int length) {
+        return (Reference<T>[]) new Reference<?>[length];
+    }
+
+    private static class Schedule<T> {
+        private final List<Reference<T>> references;
+        private final Reference<T>[] slots;
+        /** 有节点处于预热期，需要定时重新计算 **/
+        private final boolean warmingUp;
+
+        Schedule(List<Reference<T>> references, Reference<T>[] slots, boolean warmingUp) {
+            this.references = references;
+            this.slots = slots;
+            this.warmingUp = warmingUp;
+        }
+    }
+
+    /** 预热期重新计算序列的后台线程，第一次使用时创建 **/
+    private static class RebuildExecutor {
+        private static final ScheduledExecutorService EXECUTOR = new ScheduledThreadPoolExecutor(1,
+                new DefaultThreadFactory(String.format("%s-%s", Constants.FRAMEWORK_NAME, "warmup"), true));
+    }
+}
@@ -0,0 +1,69 @@
+package com.tonytaotao.rpc.cluster.merger;
+
+import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 按返回值类型合并：List、Set、Map、数组依次拼接，其余类型只有一个非null结果时直接返回，否则需要自定义Merger
+ */
+public class DefaultMerger implements Merger {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object merge(List<Object> results) {
+        List<Object> values = new ArrayList<>(results.size());
+        for (Object result : results) {
+            if (result != null) {
+                values.add(result);
+            }
+        }
+        if (values.isEmpty()) {
+            return null;
+        }
+
+        Object first = values.get(0);
+        if (first instanceof Set) {
+            Set<Object> merged = new LinkedHashSet<>();
+            for (Object value : values) {
+                merged.addAll((Collection<Object>) value);
+            }
+            return merged;
+        } else if (first instanceof Collection) {
+            List<Object> merged = new ArrayList<>();
+            for (Object value : values) {
+                merged.addAll((Collection<Object>) value);
+            }
+            return merged;
+        } else if (first instanceof Map) {
+            Map<Object, Object> merged = new LinkedHashMap<>();
+            for (Object value : values) {
+                merged.putAll((Map<Object, Object>) value);
+            }
+            return merged;
+        } else if (first.getClass().isArray()) {
+            int length = 0;
+            for (Object value : values) {
+                length += Array.getLength(value);
+            }
+            Object merged = Array.newInstance(first.getClass().getComponentType(), length);
+            int offset = 0;
+            for (Object value : values) {
+                int n = Array.getLength(value);
+                System.arraycopy(value, 0, merged, offset, n);
+                offset += n;
+            }
+            return merged;
+        } else if (values.size() == 1) {
+            return first;
+        }
+        throw new FrameworkRpcException("DefaultMerger can not merge result type:" + first.getClass().getName());
+    }
+}
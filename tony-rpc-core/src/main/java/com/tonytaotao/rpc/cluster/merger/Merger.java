@@ -0,0 +1,18 @@
+package com.tonytaotao.rpc.cluster.merger;
+
+import com.tonytaotao.rpc.core.extension.SPI;
+
+import java.util.List;
+
+/**
+ * 广播调用时合并各节点的返回值
+ */
+@SPI("default")
+public interface Merger {
+
+    /**
+     * @param results 各节点的返回值，按Reference顺序，可能包含null
+     * @return 合并后的返回值
+     */
+    Object merge(List<Object> results);
+}
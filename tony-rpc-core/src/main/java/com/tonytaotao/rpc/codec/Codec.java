@@ -2,15 +2,31 @@ package com.tonytaotao.rpc.codec;
 
 
 import com.tonytaotao.rpc.common.Constants;
-import com.tonytaotao.rpc.common.URL;
 import com.tonytaotao.rpc.core.extension.SPI;
+import com.tonytaotao.rpc.serializer.Serializer;
+import io.netty.buffer.ByteBuf;
 
 import java.io.IOException;
 
 @SPI(value = Constants.FRAMEWORK_NAME)
 public interface Codec {
 
-    byte[] encode(URL url, Object message) throws IOException;
+    /**
+     * 将消息体编码写入out
+     * @param serializer
+     * @param message
+     * @param out
+     * @throws IOException
+     */
+    void encode(Serializer serializer, Object message, ByteBuf out) throws IOException;
 
-    Object decode(URL url, byte messageType, byte[] data) throws IOException;
+    /**
+     * 从in的可读区域解码消息体
+     * @param serializer
+     * @param messageType
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    Object decode(Serializer serializer, byte messageType, ByteBuf in) throws IOException;
 }
@@ -1,48 +1,39 @@
 package com.tonytaotao.rpc.codec;
 
 import com.tonytaotao.rpc.common.Constants;
-import com.tonytaotao.rpc.common.URL;
-import com.tonytaotao.rpc.common.UrlParamEnum;
-import com.tonytaotao.rpc.core.extension.ExtensionLoader;
 import com.tonytaotao.rpc.core.request.DefaultRequest;
 import com.tonytaotao.rpc.core.response.DefaultResponse;
 import com.tonytaotao.rpc.serializer.Serializer;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import io.netty.buffer.ByteBuf;
 
 import java.io.IOException;
 
 public class DefaultCodec implements Codec {
-    private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     @Override
-    public byte[] encode(URL url, Object message) throws IOException {
-        String serialization = url.getStrParameterByEnum(UrlParamEnum.serialization);
-        logger.info("Codec encode serialization:{}", serialization);
-        return serialize(message, ExtensionLoader.getExtensionLoader(Serializer.class).getExtension(serialization));
+    public void encode(Serializer serializer, Object message, ByteBuf out) throws IOException {
+        serialize(message, out, serializer);
     }
 
     @Override
-    public Object decode(URL url, byte messageType, byte[] data) throws IOException {
-        String serialization = url.getStrParameterByEnum(UrlParamEnum.serialization);
-        logger.info("Codec decode serialization:{}", serialization);
+    public Object decode(Serializer serializer, byte messageType, ByteBuf in) throws IOException {
         if(messageType == Constants.FLAG_REQUEST) {
-            return deserialize(data, DefaultRequest.class, ExtensionLoader.getExtensionLoader(Serializer.class).getExtension(serialization));
+            return deserialize(in, DefaultRequest.class, serializer);
         }
-        return deserialize(data, DefaultResponse.class, ExtensionLoader.getExtensionLoader(Serializer.class).getExtension(serialization));
+        return deserialize(in, DefaultResponse.class, serializer);
     }
 
-    private byte[] serialize(Object message, Serializer serializer) throws IOException {
+    private void serialize(Object message, ByteBuf out, Serializer serializer) throws IOException {
         if (message == null) {
-            return null;
+            return;
         }
-        return serializer.serialize(message);
+        serializer.serialize(message, out);
     }
 
-    private Object deserialize(byte[] data, Class<?> type, Serializer serializer) throws IOException {
-        if (data == null) {
+    private Object deserialize(ByteBuf in, Class<?> type, Serializer serializer) throws IOException {
+        if (in == null) {
             return null;
         }
-        return serializer.deserialize(data, type);
+        return serializer.deserialize(in, type);
     }
 }
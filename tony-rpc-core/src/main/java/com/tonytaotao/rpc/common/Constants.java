@@ -9,8 +9,8 @@ public class Constants {
 
     public static final String ZOOKEEPER_REGISTRY_NAMESPACE = "/tonyrpc";
 
-    //头部信息的大小应该是 short+byte+long+int = 2+1+8+4 = 15
-    public static final int HEADER_SIZE = 15;
+    //头部信息的大小应该是 short+byte+byte+long+int = 2+1+1+8+4 = 16
+    public static final int HEADER_SIZE = 16;
 
     public static final short NETTY_MAGIC_TYPE = (short) 0x9F9F;
 
@@ -21,6 +21,11 @@ public class Constants {
     public static final byte REQUEST_ONEWAY = 0x03;
     public static final byte REQUEST_SYNC = 0x05;
     public static final byte REQUEST_ASYNC = 0x07;
+    /** 精简协议握手，获取服务编号与方法表 **/
+    public static final byte REQUEST_HANDSHAKE = 0x09;
+
+    /** 响应附加信息：精简请求中的服务编号已失效(服务端重启等)，客户端需重新握手 **/
+    public static final String ATTACHMENT_DICTIONARY_EXPIRED = "dictionaryExpired";
 
     public static final int DEFAULT_PORT = 20000;
 
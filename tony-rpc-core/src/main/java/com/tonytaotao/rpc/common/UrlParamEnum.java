@@ -18,14 +18,65 @@ public enum UrlParamEnum {
 
     loadBalance("loadbalance", "random"),
     haStrategy("haStrategy", "failfast"),
+    /** 一致性哈希：参与哈希的参数下标，逗号分隔 **/
+    hashArguments("hashArguments", "0"),
+    /** 一致性哈希：每个节点的虚拟节点数 **/
+    hashNodes("hashNodes", 160),
+    /** 一致性哈希：有界负载系数，节点活跃调用数超过平均值的该倍数后溢出到下一个节点 **/
+    hashLoadFactor("hashLoadFactor", "1.25"),
+    /** peak-EWMA：延迟衰减时间(ms)，越小对延迟变化越敏感 **/
+    ewmaDecayTime("ewmaDecayTime", 10000),
+    /** 加权轮询：服务权重 **/
+    weight("weight", 100),
+    /** 加权轮询：启动预热时间(ms)，预热期内权重按启动时长线性增长 **/
+    warmup("warmup", 600000),
+    /** 对冲请求：超过该分位的响应时间仍未返回时发送对冲请求 **/
+    hedgePercentile("hedgePercentile", "0.95"),
+    /** 对冲请求：对冲请求数占总请求数的比例上限 **/
+    hedgeRatio("hedgeRatio", "0.05"),
+    /** 并行调用：同时调用的Reference数 **/
+    forks("forks", 2),
+    /** 广播调用：合并返回值的Merger扩展名 **/
+    merger("merger", "default"),
     side("side", ""),
     timestamp("timestamp", 0),
 
     /**netty**/
     minWorkerThread("minWorkerThread", 20),
     maxWorkerThread("maxWorkerThread", 200),
+    /** 业务处理线程池：fixed、virtual、direct **/
+    executor("executor", "fixed"),
+    /** fixed线程池的等待队列长度，0表示不排队 **/
+    queueSize("queueSize", 0),
+    /** 服务独立线程池的线程数，大于0时该服务不使用端口共享的线程池 **/
+    threads("threads", 0),
+    /** 服务独立线程池的队列长度，0表示不排队 **/
+    queues("queues", 0),
+    /** 服务端过载保护：自适应并发限制，并丢弃排队超过超时时间的请求 **/
+    overloadProtect("overloadProtect", false),
     maxContentLength("maxContentLength", 1<<24),
     bufferSize("buffer_size", 1024*16),
+    /** 传输层实现：auto、nio、epoll **/
+    transport("transport", "auto"),
+    /** epoll下服务端通过SO_REUSEPORT绑定的acceptor数 **/
+    acceptors("acceptors", 1),
+    /** 客户端共享IO线程数，0表示使用netty默认值(2*cores) **/
+    ioThreads("ioThreads", 0),
+    /** ByteBuf分配器：pooled、unpooled **/
+    allocator("allocator", "pooled"),
+    /** 写缓冲区高低水位，超过高水位后channel不可写，低于低水位恢复可写 **/
+    writeBufferLowWaterMark("writeBufferLowWaterMark", 32*1024),
+    writeBufferHighWaterMark("writeBufferHighWaterMark", 64*1024),
+    /** 客户端channel不可写时的处理：block 阻塞等待直到可写或超时，fail 立即失败 **/
+    backpressure("backpressure", "block"),
+    /** 合并写，单批最大消息数，小于等于1表示关闭 **/
+    writeBatchSize("writeBatchSize", 0),
+    /** 合并写，最大等待时间，单位：微秒 **/
+    writeBatchDelay("writeBatchDelay", 200),
+    /** 每个服务提供者的连接数 **/
+    connections("connections", 1),
+    /** 多连接时的选择策略：roundrobin、leastpending **/
+    channelSelector("channelSelector", "roundrobin"),
 
     /**proxy**/
     proxyType("proxy", "jdk"),
@@ -34,6 +85,8 @@ public enum UrlParamEnum {
     registryAddress("reg_address", "localhost"),
     registrySessionTimeout("reg_session_timeout", 60*1000),
     registryConnectTimeout("reg_connect_timeout", 5000),
+    /** 精简协议：握手后请求只携带服务编号和方法编号 **/
+    compact("compact", false),
     /** serialize **/
     serialization("serialization", "protostuff"),
     /** codec **/
@@ -1,5 +1,8 @@
 package com.tonytaotao.rpc.common.config;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class ProtocolConfig extends AbstractXmlConfig {
 
     private static final long serialVersionUID = 1896740286017633L;
@@ -20,6 +23,8 @@ public class ProtocolConfig extends AbstractXmlConfig {
 
     private Boolean isDefault = Boolean.TRUE;
 
+    private Map<String, String> parameters = new HashMap<>(); //扩展参数，原样放入URL
+
     public String getName() {
         return name;
     }
@@ -123,4 +128,12 @@ public class ProtocolConfig extends AbstractXmlConfig {
     public void setDefault(Boolean isDefault) {
         isDefault = isDefault;
     }
+
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    public void setParameters(Map<String, String> parameters) {
+        this.parameters = parameters;
+    }
 }
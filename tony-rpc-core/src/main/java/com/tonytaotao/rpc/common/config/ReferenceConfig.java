@@ -67,6 +67,7 @@ public class ReferenceConfig<T> extends AbstractServiceConfig {
         for(ProtocolConfig protocol : protocols) {
 
             Map<String, String> map = new HashMap<>();
+            map.putAll(protocol.getParameters());
             map.put(UrlParamEnum.application.getName(), StringUtils.isNotEmpty(application.getName()) ? application.getName() : UrlParamEnum.application.getDefaultValue());
             map.put(UrlParamEnum.serialization.getName(), StringUtils.isNotEmpty(protocol.getSerialization()) ? protocol.getSerialization(): UrlParamEnum.serialization.getDefaultValue());
             map.put(UrlParamEnum.version.getName(), StringUtils.isNotEmpty(version) ? version : UrlParamEnum.version.getDefaultValue());
@@ -28,6 +28,12 @@ public class ServiceConfig<T> extends AbstractServiceConfig {
     private ArrayListMultimap<URL, URL> registeredUrls = ArrayListMultimap.create();
     private Class<T> interfaceClass;
     private T ref;
+    // 服务独立线程池的线程数与队列长度，不配置时使用端口共享的线程池
+    private Integer threads;
+    private Integer queues;
+    // 负载均衡权重与启动预热时间(ms)，预热期内权重随启动时长线性增长
+    private Integer weight;
+    private Integer warmup;
 
     protected synchronized void export() {
         if (exported) {
@@ -73,11 +79,24 @@ public class ServiceConfig<T> extends AbstractServiceConfig {
         String hostAddress = getLocalHostAddress(protocol);
 
         Map<String, String> map = new HashMap<String, String>();
+        map.putAll(protocol.getParameters());
         map.put(UrlParamEnum.application.getName(), StringUtils.isNotEmpty(application.getName()) ? application.getName() : UrlParamEnum.application.getDefaultValue());
         map.put(UrlParamEnum.version.getName(), StringUtils.isNotEmpty(version) ? version : UrlParamEnum.version.getDefaultValue());
         map.put(UrlParamEnum.group.getName(), StringUtils.isNotEmpty(group) ? group : UrlParamEnum.group.getDefaultValue());
         map.put(UrlParamEnum.serialization.getName(), StringUtils.isNotEmpty(protocol.getSerialization()) ? protocol.getSerialization(): UrlParamEnum.serialization.getDefaultValue());
         map.put(UrlParamEnum.requestTimeout.getName(), timeout!=null ? timeout.toString() : UrlParamEnum.requestTimeout.getDefaultValue());
+        if (threads != null) {
+            map.put(UrlParamEnum.threads.getName(), threads.toString());
+        }
+        if (queues != null) {
+            map.put(UrlParamEnum.queues.getName(), queues.toString());
+        }
+        if (weight != null) {
+            map.put(UrlParamEnum.weight.getName(), weight.toString());
+        }
+        if (warmup != null) {
+            map.put(UrlParamEnum.warmup.getName(), warmup.toString());
+        }
         map.put(UrlParamEnum.side.getName(), Constants.PROVIDER);
         map.put(UrlParamEnum.timestamp.getName(), String.valueOf(System.currentTimeMillis()));
 
@@ -99,6 +118,38 @@ public class ServiceConfig<T> extends AbstractServiceConfig {
         this.ref = ref;
     }
 
+    public Integer getThreads() {
+        return threads;
+    }
+
+    public void setThreads(Integer threads) {
+        this.threads = threads;
+    }
+
+    public Integer getQueues() {
+        return queues;
+    }
+
+    public void setQueues(Integer queues) {
+        this.queues = queues;
+    }
+
+    public Integer getWeight() {
+        return weight;
+    }
+
+    public void setWeight(Integer weight) {
+        this.weight = weight;
+    }
+
+    public Integer getWarmup() {
+        return warmup;
+    }
+
+    public void setWarmup(Integer warmup) {
+        this.warmup = warmup;
+    }
+
     public Class<T> getInterfaceClass() {
         return interfaceClass;
     }
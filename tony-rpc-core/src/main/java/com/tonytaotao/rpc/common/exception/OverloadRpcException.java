@@ -0,0 +1,16 @@
+package com.tonytaotao.rpc.common.exception;
+
+/**
+ * 服务端过载拒绝请求，请求未被执行，可以安全地重试其他节点
+ */
+public class OverloadRpcException extends FrameworkRpcException {
+
+    private static final long serialVersionUID = 6126873410281346475L;
+
+    public OverloadRpcException() {
+    }
+
+    public OverloadRpcException(String message) {
+        super(message);
+    }
+}
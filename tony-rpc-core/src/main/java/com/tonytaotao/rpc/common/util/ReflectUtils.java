@@ -4,6 +4,9 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 public class ReflectUtils {
 
@@ -35,4 +38,38 @@ public class ReflectUtils {
         return null;
     }
 
+    /**
+     * 方法签名，例如：echo(java.lang.String,int)
+     * @param method
+     * @return
+     */
+    public static String getMethodSignature(Method method) {
+        StringBuilder builder = new StringBuilder(method.getName()).append('(');
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(parameterTypes[i].getName());
+        }
+        return builder.append(')').toString();
+    }
+
+    /**
+     * 接口方法(不含静态方法)按签名排序，排序后的下标即服务端与客户端约定的方法编号，也是生成代理的方法下标
+     * @param clazz
+     * @return
+     */
+    public static Method[] getMethodsSortedBySignature(Class<?> clazz) {
+        List<Method> methods = new ArrayList<>();
+        for (Method method : clazz.getMethods()) {
+            // 接口静态方法不能远程调用
+            if (!Modifier.isStatic(method.getModifiers())) {
+                methods.add(method);
+            }
+        }
+        methods.sort(Comparator.comparing(ReflectUtils::getMethodSignature));
+        return methods.toArray(new Method[0]);
+    }
+
 }
@@ -5,12 +5,16 @@ import com.tonytaotao.rpc.core.response.Response;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class RpcContext {
     private Map<Object, Object> attribute = new HashMap<>();
     private Request request;
     private Response response;
     private Long requestId;
+    /** 请求的截止时间(System.nanoTime)，在服务方法内发起的调用不超过该时间 **/
+    private long deadline;
+    private boolean hasDeadline;
 
     private static final ThreadLocal<RpcContext> localContext = new ThreadLocal<RpcContext>() {
         protected RpcContext initialValue() {
@@ -71,4 +75,28 @@ public class RpcContext {
     void setRequestId(Long requestId) {
         this.requestId = requestId;
     }
+
+    public boolean hasDeadline() {
+        return hasDeadline;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+        this.hasDeadline = true;
+    }
+
+    /**
+     * 距离截止时间的剩余时间，单位：毫秒，没有截止时间时返回Long.MAX_VALUE
+     * @return
+     */
+    public long getRemainingTimeout() {
+        if (!hasDeadline) {
+            return Long.MAX_VALUE;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+    }
 }
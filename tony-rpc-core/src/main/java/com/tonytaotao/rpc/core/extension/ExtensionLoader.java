@@ -126,6 +126,12 @@ public class ExtensionLoader<T> {
 
     }
 
+    /**获取所有已配置的扩展名*/
+    public Set<String> getSupportedExtensions() {
+        checkInit();
+        return Collections.unmodifiableSet(extensionClasses.keySet());
+    }
+
     public T getSingletonInstance(String name) {
 
         T instance = singletonInstances.get(name);
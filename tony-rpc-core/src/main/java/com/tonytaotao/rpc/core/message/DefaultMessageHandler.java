@@ -1,7 +1,13 @@
 package com.tonytaotao.rpc.core.message;
 
+import com.tonytaotao.rpc.common.Constants;
+import com.tonytaotao.rpc.common.URL;
+import com.tonytaotao.rpc.common.UrlParamEnum;
+import com.tonytaotao.rpc.common.util.ReflectUtils;
 import com.tonytaotao.rpc.core.provider.Provider;
+import com.tonytaotao.rpc.executor.ServiceExecutor;
 import com.tonytaotao.rpc.core.response.DefaultResponse;
+import com.tonytaotao.rpc.core.request.DefaultRequest;
 import com.tonytaotao.rpc.core.request.Request;
 import com.tonytaotao.rpc.core.response.Response;
 import com.tonytaotao.rpc.common.exception.BusinessRpcException;
@@ -11,13 +17,29 @@ import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 @Slf4j
 public class DefaultMessageHandler implements MessageHandler {
 
     private ConcurrentHashMap<String, Provider<?>> providers = new ConcurrentHashMap<>();
 
+    /** 精简协议：服务编号 -> 服务，写时复制 **/
+    private volatile IntObjectMap<CompactService> compactServices = new IntObjectHashMap<>();
+    private ConcurrentHashMap<String, ServiceDictionary> dictionaries = new ConcurrentHashMap<>();
+    private final Random random = new Random();
+
+    /** serviceKey -> 服务独立线程池，只包含配置了threads的服务 **/
+    private ConcurrentHashMap<String, ServiceExecutor> serviceExecutors = new ConcurrentHashMap<>();
+
     public DefaultMessageHandler(Provider<?> provider) {
         addProvider(provider);
     }
@@ -25,6 +47,22 @@ public class DefaultMessageHandler implements MessageHandler {
     @Override
     public Response handle(Request request) {
 
+        if (request.getServiceId() > 0) {
+            CompactService service = compactServices.get(request.getServiceId());
+            if (service == null) {
+                DefaultResponse response = new DefaultResponse();
+                response.setRequestId(request.getRequestId());
+                response.setException(new FrameworkRpcException("service dictionary expired, serviceId=" + request.getServiceId()));
+                response.setAttachment(Constants.ATTACHMENT_DICTIONARY_EXPIRED, Boolean.TRUE.toString());
+                return response;
+            }
+            // 精简请求不携带接口名和方法名，按编号补齐，filter和日志看到的与普通请求一致
+            if (request instanceof DefaultRequest) {
+                service.fill((DefaultRequest) request);
+            }
+            return call(request, service.provider);
+        }
+
         String serviceKey = FrameworkUtils.getServiceKey(request);
 
         Provider<?> provider = providers.get(serviceKey);
@@ -34,13 +72,54 @@ public class DefaultMessageHandler implements MessageHandler {
             FrameworkRpcException exception = new FrameworkRpcException(this.getClass().getSimpleName() + " handler Error: provider not exist serviceKey=" + serviceKey );
 
             DefaultResponse response = new DefaultResponse();
+            response.setRequestId(request.getRequestId());
             response.setException(exception);
             return response;
         }
 
+        if (request.getType() == Constants.REQUEST_HANDSHAKE) {
+            DefaultResponse response = new DefaultResponse();
+            response.setRequestId(request.getRequestId());
+            response.setResult(dictionaries.get(serviceKey));
+            return response;
+        }
+
         return call(request, provider);
     }
 
+    /**
+     * 在IO线程中选择处理线程池
+     * @param request
+     * @return 服务的独立线程池，未配置时返回null
+     */
+    public Executor getExecutor(Request request) {
+        if (serviceExecutors.isEmpty()) {
+            return null;
+        }
+        if (request.getServiceId() > 0) {
+            CompactService service = compactServices.get(request.getServiceId());
+            return service == null ? null : serviceExecutors.get(service.serviceKey);
+        }
+        return serviceExecutors.get(FrameworkUtils.getServiceKey(request));
+    }
+
+    /**
+     * @param request
+     * @return 请求对应服务的url，服务不存在时返回null
+     */
+    public URL getProviderUrl(Request request) {
+        if (request.getServiceId() > 0) {
+            CompactService service = compactServices.get(request.getServiceId());
+            return service == null ? null : service.provider.getUrl();
+        }
+        Provider<?> provider = providers.get(FrameworkUtils.getServiceKey(request));
+        return provider == null ? null : provider.getUrl();
+    }
+
+    public Map<String, ServiceExecutor> getServiceExecutors() {
+        return Collections.unmodifiableMap(serviceExecutors);
+    }
+
     protected Response call(Request request, Provider<?> provider) {
         try {
             return provider.call(request);
@@ -57,12 +136,78 @@ public class DefaultMessageHandler implements MessageHandler {
             throw new FrameworkRpcException("provider alread exist: " + serviceKey);
         }
         providers.put(serviceKey, provider);
+
+        Method[] methods = ReflectUtils.getMethodsSortedBySignature(provider.getInterface());
+
+        // 编号随机分配，服务端重启后客户端持有的旧编号大概率失效，而不会被路由到其他服务
+        IntObjectMap<CompactService> newCompactServices = new IntObjectHashMap<>(compactServices.size() + 1);
+        newCompactServices.putAll(compactServices);
+        int serviceId;
+        do {
+            serviceId = random.nextInt(Integer.MAX_VALUE - 1) + 1;
+        } while (newCompactServices.containsKey(serviceId));
+        newCompactServices.put(serviceId, new CompactService(serviceKey, provider, methods));
+        compactServices = newCompactServices;
+
+        String[] methodSignatures = new String[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            methodSignatures[i] = ReflectUtils.getMethodSignature(methods[i]);
+        }
+        dictionaries.put(serviceKey, new ServiceDictionary(serviceId, methodSignatures));
+
+        int threads = provider.getUrl().getIntParameterByEnum(UrlParamEnum.threads);
+        if (threads > 0) {
+            serviceExecutors.put(serviceKey, new ServiceExecutor(String.format("%s-biz-%s", Constants.FRAMEWORK_NAME, provider.getInterface().getSimpleName()),
+                    threads, provider.getUrl().getIntParameterByEnum(UrlParamEnum.queues)));
+        }
         log.info("RequestRouter addProvider: url=" + provider.getUrl());
     }
 
     public synchronized void removeProvider(Provider<?> provider) {
         String serviceKey = FrameworkUtils.getServiceKey(provider.getUrl());
         providers.remove(serviceKey);
+        ServiceExecutor serviceExecutor = serviceExecutors.remove(serviceKey);
+        if (serviceExecutor != null) {
+            serviceExecutor.shutdown();
+        }
+        ServiceDictionary dictionary = dictionaries.remove(serviceKey);
+        if (dictionary != null) {
+            IntObjectMap<CompactService> newCompactServices = new IntObjectHashMap<>(compactServices.size());
+            newCompactServices.putAll(compactServices);
+            newCompactServices.remove(dictionary.getServiceId());
+            compactServices = newCompactServices;
+        }
         log.info("RequestRouter removeProvider: url=" + provider.getUrl());
     }
+
+    /** 精简协议的服务：方法按签名排序，下标即方法编号 **/
+    private static class CompactService {
+        private final String serviceKey;
+        private final Provider<?> provider;
+        private final String interfaceName;
+        private final String[] methodNames;
+        private final Class<?>[][] parameterTypes;
+
+        CompactService(String serviceKey, Provider<?> provider, Method[] methods) {
+            this.serviceKey = serviceKey;
+            this.provider = provider;
+            this.interfaceName = provider.getInterface().getName();
+            this.methodNames = new String[methods.length];
+            this.parameterTypes = new Class<?>[methods.length][];
+            for (int i = 0; i < methods.length; i++) {
+                methodNames[i] = methods[i].getName();
+                parameterTypes[i] = methods[i].getParameterTypes();
+            }
+        }
+
+        /** 方法编号越界时只补齐接口名，由provider返回方法不存在 **/
+        void fill(DefaultRequest request) {
+            request.setInterfaceName(interfaceName);
+            int methodId = request.getMethodId();
+            if (methodId >= 0 && methodId < methodNames.length) {
+                request.setMethodName(methodNames[methodId]);
+                request.setParameterTypes(parameterTypes[methodId]);
+            }
+        }
+    }
 }
@@ -0,0 +1,38 @@
+package com.tonytaotao.rpc.core.message;
+
+import java.io.Serializable;
+
+/**
+ * 精简协议握手结果：服务编号及按签名排序的方法表，方法在数组中的下标即方法编号
+ */
+public class ServiceDictionary implements Serializable {
+
+    private static final long serialVersionUID = -3420982519187243514L;
+
+    private int serviceId;
+    private String[] methodSignatures;
+
+    public ServiceDictionary() {
+    }
+
+    public ServiceDictionary(int serviceId, String[] methodSignatures) {
+        this.serviceId = serviceId;
+        this.methodSignatures = methodSignatures;
+    }
+
+    public int getServiceId() {
+        return serviceId;
+    }
+
+    public void setServiceId(int serviceId) {
+        this.serviceId = serviceId;
+    }
+
+    public String[] getMethodSignatures() {
+        return methodSignatures;
+    }
+
+    public void setMethodSignatures(String[] methodSignatures) {
+        this.methodSignatures = methodSignatures;
+    }
+}
@@ -1,18 +1,21 @@
 package com.tonytaotao.rpc.core.provider;
 
 import com.tonytaotao.rpc.common.URL;
+import com.tonytaotao.rpc.common.UrlParamEnum;
 import com.tonytaotao.rpc.common.exception.BusinessRpcException;
 import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
 import com.tonytaotao.rpc.core.request.Request;
+import com.tonytaotao.rpc.core.response.AsyncResponse;
 import com.tonytaotao.rpc.core.response.DefaultResponse;
 import com.tonytaotao.rpc.core.response.Response;
 
-import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
 
 public class DefaultRpcProvider<T> implements Provider<T> {
 
     private T proxyImpl;
     private Class<T> clazz;
+    private ProviderInvoker<T> invoker;
     private URL url;
     private boolean available = false;
 
@@ -20,6 +23,7 @@ public class DefaultRpcProvider<T> implements Provider<T> {
         this.proxyImpl = proxyImpl;
         this.url = url;
         this.clazz = clazz;
+        this.invoker = new ProviderInvoker<>(clazz, proxyImpl);
     }
 
     @Override
@@ -59,35 +63,35 @@ public class DefaultRpcProvider<T> implements Provider<T> {
         return "[" + this.getClass().getName() + "] url=" + url;
     }
 
+    public ProviderInvoker<T> getInvoker() {
+        return invoker;
+    }
+
     private Response invoke(Request request) {
 
         DefaultResponse response = new DefaultResponse();
         response.setRequestId(request.getRequestId());
 
-        Method method = lookup(request);
-        if (method == null) {
+        int methodIndex = request.getServiceId() > 0 ? request.getMethodId()
+                : invoker.getMethodIndex(request.getMethodName(), request.getParameterTypes());
+        if (methodIndex < 0 || methodIndex >= invoker.getMethodCount()) {
             FrameworkRpcException exception = new FrameworkRpcException("Service method not exist: " + request.getInterfaceName() + "." + request.getMethodName());
 
             response.setException(exception);
             return response;
         }
         try {
-            method.setAccessible(true);
-            Object result = method.invoke(proxyImpl, request.getArguments());
+            Object result = invoker.invoke(methodIndex, request.getArguments());
+            if (result instanceof CompletableFuture) {
+                // 异步实现的服务方法，不占用业务线程，完成后再写回响应；客户端携带了超时时间时以其为准
+                int timeout = request.getTimeout() > 0 ? request.getTimeout() : url.getIntParameterByEnum(UrlParamEnum.requestTimeout);
+                return new AsyncResponse(response, (CompletableFuture<?>) result, timeout);
+            }
             response.setResult(result);
-        } catch (Exception e) {
+        } catch (Throwable e) {
             response.setException(new BusinessRpcException("invoke failure", e));
         }
         return response;
     }
 
-    private Method lookup(Request request) {
-        try {
-            return clazz.getMethod(request.getMethodName(), request.getParameterTypes());
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
-        }
-        return null;
-    }
-
 }
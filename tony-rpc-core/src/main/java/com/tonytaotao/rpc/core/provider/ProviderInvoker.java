@@ -0,0 +1,94 @@
+package com.tonytaotao.rpc.core.provider;
+
+import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
+import com.tonytaotao.rpc.common.util.ReflectUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 服务接口方法表，导出时构建一次：方法按签名排序后编号，每个方法预先绑定实现对象，
+ * 适配为 (Object[])Object 的MethodHandle，调用时不再做反射查找
+ */
+public class ProviderInvoker<T> {
+
+    private static final Class<?>[] EMPTY_PARAMETER_TYPES = new Class<?>[0];
+
+    private final Method[] methods;
+    /** Method.getParameterTypes()每次调用都复制数组，查找时使用缓存 **/
+    private final Class<?>[][] parameterTypes;
+    private final MethodHandle[] handles;
+    /** 方法名 -> 同名方法的编号 **/
+    private final Map<String, int[]> indexesByName = new HashMap<>();
+
+    public ProviderInvoker(Class<T> clazz, T impl) {
+        Method[] methods = ReflectUtils.getMethodsSortedBySignature(clazz);
+
+        this.methods = methods;
+        this.parameterTypes = new Class<?>[methods.length][];
+        this.handles = new MethodHandle[methods.length];
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (int i = 0; i < methods.length; i++) {
+            Method method = methods[i];
+            parameterTypes[i] = method.getParameterTypes();
+            int parameterCount = parameterTypes[i].length;
+            try {
+                method.setAccessible(true);
+                handles[i] = lookup.unreflect(method)
+                        .bindTo(impl)
+                        .asType(MethodType.genericMethodType(parameterCount))
+                        .asSpreader(Object[].class, parameterCount);
+            } catch (IllegalAccessException e) {
+                throw new FrameworkRpcException("create method handle failure: " + clazz.getName() + "." + method.getName(), e);
+            }
+
+            int[] indexes = indexesByName.get(method.getName());
+            if (indexes == null) {
+                indexes = new int[]{i};
+            } else {
+                indexes = Arrays.copyOf(indexes, indexes.length + 1);
+                indexes[indexes.length - 1] = i;
+            }
+            indexesByName.put(method.getName(), indexes);
+        }
+    }
+
+    /**
+     * @param methodName
+     * @param parameterTypes
+     * @return 方法编号，不存在时返回-1
+     */
+    public int getMethodIndex(String methodName, Class<?>[] parameterTypes) {
+        int[] indexes = indexesByName.get(methodName);
+        if (indexes == null) {
+            return -1;
+        }
+        if (parameterTypes == null) {
+            parameterTypes = EMPTY_PARAMETER_TYPES;
+        }
+        for (int index : indexes) {
+            if (Arrays.equals(this.parameterTypes[index], parameterTypes)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    public Method[] getMethods() {
+        return methods.clone();
+    }
+
+    public int getMethodCount() {
+        return methods.length;
+    }
+
+    public Object invoke(int methodIndex, Object[] arguments) throws Throwable {
+        return (Object) handles[methodIndex].invokeExact(arguments);
+    }
+}
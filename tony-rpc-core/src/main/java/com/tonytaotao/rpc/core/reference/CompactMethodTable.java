@@ -0,0 +1,104 @@
+package com.tonytaotao.rpc.core.reference;
+
+import com.tonytaotao.rpc.common.UrlParamEnum;
+import com.tonytaotao.rpc.common.util.ReflectUtils;
+import com.tonytaotao.rpc.core.message.ServiceDictionary;
+import com.tonytaotao.rpc.core.request.DefaultRequest;
+import com.tonytaotao.rpc.core.request.Request;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 客户端接口方法到服务端方法编号的映射，由握手得到的ServiceDictionary构建，
+ * 用于把普通请求改写为只携带服务编号和方法编号的精简请求
+ */
+public class CompactMethodTable {
+
+    private static final Class<?>[] EMPTY_PARAMETER_TYPES = new Class<?>[0];
+
+    private final int serviceId;
+    /** 方法名 -> 同名方法的参数类型与编号 **/
+    private final Map<String, MethodEntry[]> entriesByName = new HashMap<>();
+
+    public CompactMethodTable(Class<?> clazz, ServiceDictionary dictionary) {
+        this.serviceId = dictionary.getServiceId();
+
+        Map<String, Integer> serverMethodIds = new HashMap<>();
+        String[] signatures = dictionary.getMethodSignatures();
+        for (int i = 0; i < signatures.length; i++) {
+            serverMethodIds.put(signatures[i], i);
+        }
+
+        // 服务端没有的方法不加入，调用时退回普通请求
+        for (Method method : clazz.getMethods()) {
+            Integer methodId = serverMethodIds.get(ReflectUtils.getMethodSignature(method));
+            if (methodId == null) {
+                continue;
+            }
+            MethodEntry entry = new MethodEntry(method.getParameterTypes(), methodId);
+            MethodEntry[] entries = entriesByName.get(method.getName());
+            if (entries == null) {
+                entries = new MethodEntry[]{entry};
+            } else {
+                entries = Arrays.copyOf(entries, entries.length + 1);
+                entries[entries.length - 1] = entry;
+            }
+            entriesByName.put(method.getName(), entries);
+        }
+    }
+
+    /**
+     * @param request
+     * @return 精简请求，方法不在服务端方法表中时返回null
+     */
+    public Request compact(Request request) {
+        int methodId = getMethodId(request.getMethodName(), request.getParameterTypes());
+        if (methodId < 0) {
+            return null;
+        }
+
+        DefaultRequest compactRequest = new DefaultRequest();
+        compactRequest.setRequestId(request.getRequestId());
+        compactRequest.setType(request.getType());
+        compactRequest.setArguments(request.getArguments());
+        compactRequest.setServiceId(serviceId);
+        compactRequest.setMethodId(methodId);
+        compactRequest.setTimeout(request.getTimeout());
+        // version、group已包含在服务编号中
+        for (Map.Entry<String, String> attachment : request.getAttachments().entrySet()) {
+            if (!UrlParamEnum.version.getName().equals(attachment.getKey()) && !UrlParamEnum.group.getName().equals(attachment.getKey())) {
+                compactRequest.setAttachment(attachment.getKey(), attachment.getValue());
+            }
+        }
+        return compactRequest;
+    }
+
+    private int getMethodId(String methodName, Class<?>[] parameterTypes) {
+        MethodEntry[] entries = entriesByName.get(methodName);
+        if (entries == null) {
+            return -1;
+        }
+        if (parameterTypes == null) {
+            parameterTypes = EMPTY_PARAMETER_TYPES;
+        }
+        for (MethodEntry entry : entries) {
+            if (Arrays.equals(entry.parameterTypes, parameterTypes)) {
+                return entry.methodId;
+            }
+        }
+        return -1;
+    }
+
+    private static class MethodEntry {
+        private final Class<?>[] parameterTypes;
+        private final int methodId;
+
+        MethodEntry(Class<?>[] parameterTypes, int methodId) {
+            this.parameterTypes = parameterTypes;
+            this.methodId = methodId;
+        }
+    }
+}
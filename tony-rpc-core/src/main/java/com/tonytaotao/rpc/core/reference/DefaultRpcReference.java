@@ -1,13 +1,22 @@
 package com.tonytaotao.rpc.core.reference;
 
+import com.tonytaotao.rpc.common.Constants;
 import com.tonytaotao.rpc.common.URL;
+import com.tonytaotao.rpc.common.UrlParamEnum;
+import com.tonytaotao.rpc.common.util.IdGeneratorUtils;
+import com.tonytaotao.rpc.core.message.ServiceDictionary;
+import com.tonytaotao.rpc.core.request.DefaultRequest;
 import com.tonytaotao.rpc.core.request.Request;
 import com.tonytaotao.rpc.core.response.Response;
+import com.tonytaotao.rpc.core.response.future.DefaultResponseFuture;
+import com.tonytaotao.rpc.core.response.future.ResponseFuture;
+import com.tonytaotao.rpc.common.exception.BusinessRpcException;
 import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
 import com.tonytaotao.rpc.netty.client.NettyClient;
 import com.tonytaotao.rpc.netty.client.DefaultNettyClient;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
@@ -20,12 +29,20 @@ public class DefaultRpcReference<T> implements Reference<T> {
     private URL serviceUrl;
 
     private AtomicInteger activeCounter = new AtomicInteger(0);
+    private final ReferenceStats stats;
+
+    /** 服务端开启了精简协议 **/
+    private boolean compact;
+    /** 握手得到的方法表，为null时发送普通请求 **/
+    private volatile CompactMethodTable compactMethodTable;
 
     public DefaultRpcReference(Class<T> clazz, URL url, URL serviceUrl) {
         this.clazz = clazz;
         this.url = url;
         this.serviceUrl = serviceUrl;
-        this.client = new DefaultNettyClient(serviceUrl);
+        this.client = new DefaultNettyClient(url);
+        this.stats = new ReferenceStats(url.getIntParameterByEnum(UrlParamEnum.ewmaDecayTime));
+        this.compact = Boolean.parseBoolean(serviceUrl.getStrParameterByEnum(UrlParamEnum.compact));
     }
 
     @Override
@@ -44,36 +61,163 @@ public class DefaultRpcReference<T> implements Reference<T> {
             throw new FrameworkRpcException(this.getClass().getName() + " call Error: node is not available, url=" + url.getUri());
         }
 
-        incrActiveCount(request);
+        long start = incrActiveCount(request);
         Response response = null;
         try {
             response = doCall(request);
             return response;
         } finally {
-            decrActiveCount(request, response);
+            decrActiveCount(request, response, start);
         }
 
     }
 
+    @Override
+    public ResponseFuture<Response> callAsync(final Request request) {
+        if (!isAvailable()) {
+            throw new FrameworkRpcException(this.getClass().getName() + " callAsync Error: node is not available, url=" + url.getUri());
+        }
+
+        final long start = incrActiveCount(request);
+        ResponseFuture<Response> future;
+        try {
+            future = doCallAsync(request);
+        } catch (RuntimeException e) {
+            decrActiveCount(request, null, start);
+            throw e;
+        }
+        future.addListener(f -> decrActiveCount(request, f.getNow(), start));
+        return future;
+    }
+
     @Override
     public int activeCount() {
         return activeCounter.get();
     }
 
+    @Override
+    public ReferenceStats getStats() {
+        return stats;
+    }
+
     private Response doCall(Request request) {
         try {
+            CompactMethodTable table = this.compactMethodTable;
+            if (table != null) {
+                Request compactRequest = table.compact(request);
+                if (compactRequest != null) {
+                    Response response = client.invokeSync(compactRequest);
+                    if (response.getException() == null || !response.getAttachments().containsKey(Constants.ATTACHMENT_DICTIONARY_EXPIRED)) {
+                        return response;
+                    }
+                    // 服务编号失效，重新握手后以普通请求重发
+                    handshake();
+                }
+            }
             return client.invokeSync(request);
         } catch (Exception e) {
             throw new FrameworkRpcException("invoke exception", e);
         }
     }
 
-    private void decrActiveCount(Request request, Response response) {
+    private ResponseFuture<Response> doCallAsync(final Request request) {
+        CompactMethodTable table = this.compactMethodTable;
+        Request compactRequest = table != null ? table.compact(request) : null;
+        if (compactRequest == null) {
+            return invokeAsync(request);
+        }
+
+        final ResponseFuture<Response> result = new DefaultResponseFuture<>(url.getIntParameterByEnum(UrlParamEnum.requestTimeout));
+        invokeAsync(compactRequest).addListener(future -> {
+            Response response = future.getNow();
+            if (response != null && response.getException() != null && response.getAttachments().containsKey(Constants.ATTACHMENT_DICTIONARY_EXPIRED)) {
+                // 服务编号失效，以普通请求重发，同时异步重新握手
+                handshakeAsync();
+                try {
+                    invokeAsync(request).addListener(f -> transfer(f, result));
+                } catch (RuntimeException e) {
+                    result.setFailure(e);
+                }
+            } else {
+                transfer(future, result);
+            }
+        });
+        return result;
+    }
+
+    private ResponseFuture<Response> invokeAsync(Request request) {
+        try {
+            return client.invokeAsync(request);
+        } catch (Exception e) {
+            throw new FrameworkRpcException("invoke exception", e);
+        }
+    }
+
+    private static void transfer(ResponseFuture<Response> from, ResponseFuture<Response> to) {
+        if (from.isSuccess()) {
+            to.setResult(from.getNow());
+        } else {
+            to.setFailure(from.cause());
+        }
+    }
+
+    /** 精简协议握手，失败时退回普通请求 **/
+    private void handshake() {
+        this.compactMethodTable = null;
+        try {
+            onHandshake(client.invokeSync(newHandshakeRequest()));
+        } catch (Exception e) {
+            log.warn("compact handshake failure, url:" + serviceUrl.getUri(), e);
+        }
+    }
+
+    /** 在响应回调中使用，不阻塞当前线程 **/
+    private void handshakeAsync() {
+        this.compactMethodTable = null;
+        try {
+            client.invokeAsync(newHandshakeRequest()).addListener(future -> {
+                if (future.isSuccess()) {
+                    onHandshake(future.getNow());
+                } else {
+                    log.warn("compact handshake failure, url:" + serviceUrl.getUri(), future.cause());
+                }
+            });
+        } catch (Exception e) {
+            log.warn("compact handshake failure, url:" + serviceUrl.getUri(), e);
+        }
+    }
+
+    private Request newHandshakeRequest() {
+        DefaultRequest request = new DefaultRequest();
+        request.setRequestId(IdGeneratorUtils.getRequestId());
+        request.setInterfaceName(clazz.getName());
+        request.setType(Constants.REQUEST_HANDSHAKE);
+        request.setAttachment(UrlParamEnum.version.getName(), url.getVersion());
+        request.setAttachment(UrlParamEnum.group.getName(), url.getGroup());
+        return request;
+    }
+
+    private void onHandshake(Response response) {
+        if (response.getException() == null && response.getResult() instanceof ServiceDictionary) {
+            this.compactMethodTable = new CompactMethodTable(clazz, (ServiceDictionary) response.getResult());
+        } else {
+            log.warn("compact handshake failure, url:{}, exception:{}", serviceUrl.getUri(), response.getException());
+        }
+    }
+
+    /** 非业务异常按超时时间记录，避免快速失败的节点因延迟低反而被优先选中 **/
+    private void decrActiveCount(Request request, Response response, long start) {
+        long rtt = System.nanoTime() - start;
+        if (response == null || (response.getException() != null && !(response.getException() instanceof BusinessRpcException))) {
+            rtt = Math.max(rtt, TimeUnit.MILLISECONDS.toNanos(url.getIntParameterByEnum(UrlParamEnum.requestTimeout)));
+        }
+        stats.observe(rtt);
         activeCounter.decrementAndGet();
     }
 
-    private void incrActiveCount(Request request) {
+    private long incrActiveCount(Request request) {
         activeCounter.incrementAndGet();
+        return System.nanoTime();
     }
 
     @Override
@@ -89,6 +233,9 @@ public class DefaultRpcReference<T> implements Reference<T> {
     @Override
     public void init() {
         this.client.open();
+        if (compact) {
+            handshake();
+        }
     }
 
     @Override
@@ -2,6 +2,9 @@ package com.tonytaotao.rpc.core.reference;
 
 import com.tonytaotao.rpc.common.URL;
 import com.tonytaotao.rpc.core.Caller;
+import com.tonytaotao.rpc.core.request.Request;
+import com.tonytaotao.rpc.core.response.Response;
+import com.tonytaotao.rpc.core.response.future.ResponseFuture;
 
 public interface Reference<T> extends Caller<T> {
 
@@ -12,4 +15,17 @@ public interface Reference<T> extends Caller<T> {
     int activeCount();
 
     URL getServiceUrl();
+
+    /**
+     * 异步调用，不阻塞当前线程
+     * @param request
+     * @return
+     */
+    ResponseFuture<Response> callAsync(Request request);
+
+    /**
+     * 调用延迟统计，供负载均衡使用
+     * @return
+     */
+    ReferenceStats getStats();
 }
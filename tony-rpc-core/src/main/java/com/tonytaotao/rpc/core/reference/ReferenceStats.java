@@ -0,0 +1,61 @@
+package com.tonytaotao.rpc.core.reference;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reference的调用统计：peak-EWMA延迟。
+ * 新样本大于当前值时直接取新样本(峰值)，否则按距上次采样的时间指数衰减，
+ * 慢节点立刻被感知，恢复后逐渐被重新选中。全部基于CAS，负载均衡选择时不加锁
+ */
+public class ReferenceStats {
+
+    /** 没有样本但有调用在进行时的惩罚延迟，避免新节点瞬间涌入大量请求 **/
+    private static final double PENALTY_NANOS = 1_000_000_000d;
+
+    private final double decayNanos;
+
+    /** double的bit表示 **/
+    private final AtomicLong ewma = new AtomicLong(Double.doubleToRawLongBits(0d));
+    private final AtomicLong lastSampleNanos = new AtomicLong(System.nanoTime());
+
+    public ReferenceStats(long decayTimeInMillis) {
+        this.decayNanos = Math.max(1, decayTimeInMillis) * 1_000_000d;
+    }
+
+    /**
+     * 记录一次调用的耗时
+     * @param rttNanos 从发出请求到收到响应(或失败)的时间
+     */
+    public void observe(long rttNanos) {
+        long now = System.nanoTime();
+        long elapsed = Math.max(0, now - lastSampleNanos.getAndSet(now));
+        double weight = Math.exp(-elapsed / decayNanos);
+
+        long prev;
+        long next;
+        do {
+            prev = ewma.get();
+            double current = Double.longBitsToDouble(prev);
+            double value = rttNanos > current ? rttNanos : current * weight + rttNanos * (1 - weight);
+            next = Double.doubleToRawLongBits(value);
+        } while (!ewma.compareAndSet(prev, next));
+    }
+
+    /** 当前的延迟估计(ns)，从上次采样到现在同样按时间衰减 **/
+    public double getLatency() {
+        long elapsed = Math.max(0, System.nanoTime() - lastSampleNanos.get());
+        return Double.longBitsToDouble(ewma.get()) * Math.exp(-elapsed / decayNanos);
+    }
+
+    /**
+     * 负载代价：延迟 × (进行中的调用数 + 1)
+     * @param activeCount 进行中的调用数
+     */
+    public double getCost(int activeCount) {
+        double latency = getLatency();
+        if (latency == 0 && activeCount > 0) {
+            return PENALTY_NANOS + activeCount;
+        }
+        return latency * (activeCount + 1);
+    }
+}
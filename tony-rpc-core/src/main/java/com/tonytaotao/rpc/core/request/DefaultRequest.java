@@ -1,6 +1,8 @@
 package com.tonytaotao.rpc.core.request;
 
 
+import com.tonytaotao.rpc.common.util.IdGeneratorUtils;
+
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.HashMap;
@@ -17,6 +19,32 @@ public class DefaultRequest implements Serializable, Request {
     private Class<?>[] parameterTypes;
     private byte type;  //请求类型
     private Map<String, String> attachments;
+    /** attachments为多个请求共享的只读map，修改前需复制 **/
+    private transient boolean attachmentsShared;
+    private int serviceId;
+    private int methodId;
+    private int timeout;
+
+    /**
+     * 复制请求发往另一个Reference(并行、对冲调用)：使用新的requestId，参数与attachments共享，
+     * 服务编号和方法编号不复制，由各Reference按自己的握手结果设置
+     * @param request
+     * @return
+     */
+    public static DefaultRequest copyOf(Request request) {
+        DefaultRequest copy = new DefaultRequest();
+        copy.setRequestId(IdGeneratorUtils.getRequestId());
+        copy.setInterfaceName(request.getInterfaceName());
+        copy.setMethodName(request.getMethodName());
+        copy.setParameterTypes(request.getParameterTypes());
+        copy.setArguments(request.getArguments());
+        copy.setType(request.getType());
+        copy.setTimeout(request.getTimeout());
+        if (!request.getAttachments().isEmpty()) {
+            copy.setSharedAttachments(request.getAttachments());
+        }
+        return copy;
+    }
 
     @Override
     public Long getRequestId() {
@@ -67,10 +95,39 @@ public class DefaultRequest implements Serializable, Request {
         this.type = type;
     }
 
+    @Override
     public byte getType() {
         return type;
     }
 
+    @Override
+    public int getServiceId() {
+        return serviceId;
+    }
+
+    public void setServiceId(int serviceId) {
+        this.serviceId = serviceId;
+    }
+
+    @Override
+    public int getMethodId() {
+        return methodId;
+    }
+
+    public void setMethodId(int methodId) {
+        this.methodId = methodId;
+    }
+
+    @Override
+    public int getTimeout() {
+        return timeout;
+    }
+
+    @Override
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
     @Override
     public Map<String, String> getAttachments() {
         return attachments != null ? attachments : Collections.EMPTY_MAP;
@@ -90,8 +147,20 @@ public class DefaultRequest implements Serializable, Request {
     public void setAttachment(String key, String value) {
         if(attachments==null){
             attachments = new HashMap<>();
+        } else if (attachmentsShared) {
+            attachments = new HashMap<>(attachments);
+            attachmentsShared = false;
         }
         attachments.put(key, value);
     }
 
+    /**
+     * 设置多个请求共享的attachments，本请求不会修改该map，setAttachment时先复制
+     * @param attachments
+     */
+    public void setSharedAttachments(Map<String, String> attachments) {
+        this.attachments = attachments;
+        this.attachmentsShared = true;
+    }
+
 }
@@ -14,6 +14,28 @@ public interface Request {
 
     Class<?>[] getParameterTypes();
 
+    byte getType();
+
+    /**
+     * 精简协议下握手得到的服务编号，0表示普通请求
+     * @return
+     */
+    int getServiceId();
+
+    /**
+     * 精简协议下的方法编号，serviceId大于0时有效
+     * @return
+     */
+    int getMethodId();
+
+    /**
+     * 客户端剩余的超时时间，单位：毫秒，0表示未设置。服务端据此丢弃客户端已放弃等待的请求
+     * @return
+     */
+    int getTimeout();
+
+    void setTimeout(int timeout);
+
     Map<String, String> getAttachments();
 
     String getAttachment(String key);
@@ -0,0 +1,103 @@
+package com.tonytaotao.rpc.core.response;
+
+import com.tonytaotao.rpc.common.Constants;
+import com.tonytaotao.rpc.common.exception.BusinessRpcException;
+import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
+import com.tonytaotao.rpc.core.response.future.DefaultResponseFuture;
+import com.tonytaotao.rpc.core.response.future.ResponseFuture;
+import com.tonytaotao.rpc.netty.NonBlockingThreadFactory;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 服务方法返回CompletableFuture时的响应：业务线程直接返回，
+ * 结果在future完成后填入response，再由getFuture()的回调写回客户端。
+ * 超过timeoutInMillis仍未完成时以超时异常结束，保证响应写回且过载保护的并发额度被释放
+ */
+public class AsyncResponse implements Response {
+
+    private final DefaultResponse response;
+    private final ResponseFuture<Response> future;
+
+    public AsyncResponse(DefaultResponse response, CompletableFuture<?> resultFuture, long timeoutInMillis) {
+        this.response = response;
+        this.future = new DefaultResponseFuture<>(timeoutInMillis);
+
+        // 超时与正常完成只有先到的一方填充response
+        final AtomicBoolean completed = new AtomicBoolean();
+        final Timeout timeout = timeoutInMillis > 0 && !resultFuture.isDone() ? TimeoutTimer.TIMER.newTimeout(t -> {
+            if (completed.compareAndSet(false, true)) {
+                response.setException(new FrameworkRpcException("async service method timeout after " + timeoutInMillis + "ms"));
+                future.setResult(response);
+            }
+        }, timeoutInMillis, TimeUnit.MILLISECONDS) : null;
+
+        resultFuture.whenComplete((result, e) -> {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            if (e == null) {
+                response.setResult(result);
+            } else {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                response.setException(new BusinessRpcException("invoke failure", cause));
+            }
+            future.setResult(response);
+        });
+    }
+
+    public ResponseFuture<Response> getFuture() {
+        return future;
+    }
+
+    @Override
+    public Long getRequestId() {
+        return response.getRequestId();
+    }
+
+    @Override
+    public Exception getException() {
+        return response.getException();
+    }
+
+    @Override
+    public Object getResult() {
+        return response.getResult();
+    }
+
+    @Override
+    public Map<String, String> getAttachments() {
+        return response.getAttachments();
+    }
+
+    @Override
+    public String getAttachment(String key) {
+        return response.getAttachment(key);
+    }
+
+    @Override
+    public String getAttachment(String key, String defaultValue) {
+        return response.getAttachment(key, defaultValue);
+    }
+
+    @Override
+    public void setAttachment(String key, String value) {
+        response.setAttachment(key, value);
+    }
+
+    /** 异步服务方法的超时定时器，第一次使用时创建 **/
+    private static class TimeoutTimer {
+        private static final Timer TIMER = new HashedWheelTimer(
+                new NonBlockingThreadFactory(String.format("%s-%s", Constants.FRAMEWORK_NAME, "async-timeout"), true), 10, TimeUnit.MILLISECONDS);
+    }
+}
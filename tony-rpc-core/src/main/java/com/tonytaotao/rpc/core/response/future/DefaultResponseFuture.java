@@ -1,23 +1,44 @@
 package com.tonytaotao.rpc.core.response.future;
 
+import com.tonytaotao.rpc.common.exception.AbstractRpcException;
 import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
+import lombok.extern.slf4j.Slf4j;
 
-import java.io.IOException;
 import java.util.concurrent.CancellationException;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
 
+/**
+ * 无锁实现：结果通过CAS写入outcome，等待线程与回调挂在waiters栈上，完成时一次性取出并唤醒/执行
+ */
+@Slf4j
 public class DefaultResponseFuture<T> implements ResponseFuture<T> {
 
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<DefaultResponseFuture, Object> OUTCOME_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(DefaultResponseFuture.class, Object.class, "outcome");
 
-    private volatile FutureStateEnum state = FutureStateEnum.NEW; //状态
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<DefaultResponseFuture, Node> WAITERS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(DefaultResponseFuture.class, Node.class, "waiters");
+
+    /** 结果为null时的占位 **/
+    private static final Object NULL_RESULT = new Object();
+    /** waiters栈已关闭，后续加入的回调直接执行 **/
+    private static final Node COMPLETED = new Node(null, null);
 
     private final long createTime = System.currentTimeMillis();//处理开始时间
 
-    private volatile T result;
-    private volatile Throwable err;
-    private CountDownLatch latch;
+    private final long timeoutInMillis;
+
+    /** null:未完成 NULL_RESULT:结果为null Failure:失败 其他:结果 **/
+    private volatile Object outcome;
 
-    private long timeoutInMillis;
+    private volatile Node waiters;
 
     public DefaultResponseFuture(long timeoutInMillis) {
         this.timeoutInMillis = timeoutInMillis;
@@ -25,88 +46,261 @@ public class DefaultResponseFuture<T> implements ResponseFuture<T> {
 
     @Override
     public boolean isCancelled() {
-        return this.state == FutureStateEnum.CANCELLED;
+        Object o = outcome;
+        return o instanceof Failure && ((Failure) o).cause instanceof CancellationException;
     }
 
     @Override
     public boolean isDone() {
-        return this.state == FutureStateEnum.DONE;
+        return outcome != null;
     }
 
     @Override
     public boolean isTimeout() {
-        return createTime + timeoutInMillis > System.currentTimeMillis();
+        return createTime + timeoutInMillis < System.currentTimeMillis();
     }
 
-
     @Override
     public T get() throws InterruptedException {
-        if(!this.isDone()) {
-            boolean wait = this.prepareForWait();
-            if(wait) {
-                this.latch.await();
-            }
+        if (outcome == null) {
+            await(false, 0L);
+        }
+        return returnResult();
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        if (outcome == null && !await(true, unit.toNanos(timeout))) {
+            throw new TimeoutException();
         }
         return returnResult();
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public T getNow() {
+        Object o = outcome;
+        if (o == null || o == NULL_RESULT || o instanceof Failure) {
+            return null;
+        }
+        return (T) o;
+    }
+
+    @Override
+    public Throwable cause() {
+        Object o = outcome;
+        return o instanceof Failure ? ((Failure) o).cause : null;
+    }
+
     @Override
     public boolean isSuccess() {
-        return isDone() && err==null;
+        Object o = outcome;
+        return o != null && !(o instanceof Failure);
     }
 
     @Override
     public void setResult(T result) {
-        synchronized(this) {
-            if(!this.isDone()) {
-                this.result = result;
-                this.state = FutureStateEnum.DONE;
-                if(this.latch != null) {
-                    this.latch.countDown();
-                }
-            }
-        }
+        complete(result == null ? NULL_RESULT : result);
     }
 
     @Override
     public void setFailure(Throwable throwable) {
-        if(!(throwable instanceof IOException) && !(throwable instanceof SecurityException)) {
-            throwable = new IOException(throwable);
+        complete(new Failure(throwable));
+    }
+
+    @Override
+    public ResponseFuture<T> addListener(FutureListener<T> listener) {
+        if (!push(new Node(null, listener))) {
+            notifyListener(listener);
         }
+        return this;
+    }
 
-        synchronized(this) {
-            if(!this.isDone()) {
-                this.err = throwable;
-                this.state = FutureStateEnum.DONE;
-                if(this.latch != null) {
-                    this.latch.countDown();
+    @Override
+    public <U> ResponseFuture<U> thenApply(final Function<? super T, ? extends U> fn) {
+        final DefaultResponseFuture<U> next = new DefaultResponseFuture<>(timeoutInMillis);
+        addListener(future -> {
+            if (future.isSuccess()) {
+                U value;
+                try {
+                    value = fn.apply(future.getNow());
+                } catch (Throwable e) {
+                    next.setFailure(e);
+                    return;
                 }
+                next.setResult(value);
+            } else {
+                next.setFailure(future.cause());
             }
-        }
+        });
+        return next;
     }
 
-    private T returnResult() throws CancellationException {
-        if(this.err != null) {
-            if(this.state == FutureStateEnum.CANCELLED) {
-                throw new CancellationException();
+    @Override
+    public CompletableFuture<T> toCompletableFuture() {
+        final CompletableFuture<T> completableFuture = new CompletableFuture<>();
+        addListener(future -> {
+            if (future.isSuccess()) {
+                completableFuture.complete(future.getNow());
+            } else {
+                completableFuture.completeExceptionally(future.cause());
+            }
+        });
+        return completableFuture;
+    }
+
+    /** 节点中的listener都由本future的addListener加入，类型参数与本future一致 **/
+    @SuppressWarnings("unchecked")
+    private void complete(Object value) {
+        if (!OUTCOME_UPDATER.compareAndSet(this, null, value)) {
+            return;
+        }
+
+        Node head = WAITERS_UPDATER.getAndSet(this, COMPLETED);
+
+        // 栈是后进先出，按添加顺序唤醒/回调。不原地反转链表，removeWaiter可能同时在摘除节点
+        int count = 0;
+        for (Node node = head; node != null; node = node.next) {
+            count++;
+        }
+        Node[] nodes = new Node[count];
+        int size = 0;
+        for (Node node = head; node != null && size < count; node = node.next) {
+            nodes[size++] = node;
+        }
+
+        for (int i = size - 1; i >= 0; i--) {
+            Node node = nodes[i];
+            if (node.listener != null) {
+                notifyListener((FutureListener<T>) node.listener);
             } else {
-                throw new FrameworkRpcException(this.err);
+                Thread thread = node.thread;
+                if (thread != null) {
+                    LockSupport.unpark(thread);
+                }
             }
-        } else {
-            return this.result;
         }
     }
 
-    private boolean prepareForWait() {
-        synchronized(this) {
-            if(this.isDone()) {
+    /**
+     * @return false 已完成，节点未加入
+     */
+    private boolean push(Node node) {
+        for (;;) {
+            Node head = waiters;
+            if (head == COMPLETED) {
                 return false;
+            }
+            node.next = head;
+            if (WAITERS_UPDATER.compareAndSet(this, head, node)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return false 等待超时
+     */
+    private boolean await(boolean timed, long nanos) throws InterruptedException {
+        Node node = new Node(Thread.currentThread(), null);
+        if (!push(node)) {
+            return true;
+        }
+
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        while (outcome == null) {
+            if (timed) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0L) {
+                    removeWaiter(node);
+                    return outcome != null;
+                }
+                LockSupport.parkNanos(this, remaining);
             } else {
-                if(this.latch == null) {
-                    this.latch = new CountDownLatch(1);
+                LockSupport.park(this);
+            }
+            if (Thread.interrupted()) {
+                removeWaiter(node);
+                throw new InterruptedException();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 等待超时或被中断时摘除节点(同FutureTask.removeWaiter)，避免反复限时等待的future上节点无限增长。
+     * 先清空thread标记节点作废，再从栈顶遍历摘除所有作废节点，与其他线程的摘除冲突时从头重试
+     */
+    private void removeWaiter(Node node) {
+        node.thread = null;
+        retry:
+        for (;;) {
+            for (Node pred = null, q = waiters, s; q != null; q = s) {
+                if (q == COMPLETED) {
+                    return;
+                }
+                s = q.next;
+                if (!q.isRemoved()) {
+                    pred = q;
+                } else if (pred != null) {
+                    pred.next = s;
+                    // 前驱同时被作废，可能已被摘除，从头重试
+                    if (pred.isRemoved()) {
+                        continue retry;
+                    }
+                } else if (!WAITERS_UPDATER.compareAndSet(this, q, s)) {
+                    continue retry;
                 }
-                return true;
             }
+            return;
+        }
+    }
+
+    private void notifyListener(FutureListener<T> listener) {
+        try {
+            listener.operationComplete(this);
+        } catch (Throwable e) {
+            log.warn("ResponseFuture listener:" + listener.getClass().getName() + " threw an exception", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T returnResult() throws CancellationException {
+        Object o = outcome;
+        if (o instanceof Failure) {
+            Throwable err = ((Failure) o).cause;
+            if (err instanceof CancellationException) {
+                throw (CancellationException) err;
+            } else if (err instanceof AbstractRpcException) {
+                throw (AbstractRpcException) err;
+            } else {
+                throw new FrameworkRpcException(err);
+            }
+        }
+        return o == NULL_RESULT ? null : (T) o;
+    }
+
+    private static final class Failure {
+        private final Throwable cause;
+
+        Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+
+    /** 等待节点thread不为null，回调节点listener不为null，两者都为null时为已作废的等待节点 **/
+    private static final class Node {
+        private volatile Thread thread;
+        private final FutureListener<?> listener;
+        private volatile Node next;
+
+        Node(Thread thread, FutureListener<?> listener) {
+            this.thread = thread;
+            this.listener = listener;
+        }
+
+        boolean isRemoved() {
+            return thread == null && listener == null;
         }
     }
 }
@@ -0,0 +1,9 @@
+package com.tonytaotao.rpc.core.response.future;
+
+/**
+ * ResponseFuture完成回调，由完成future的线程执行（通常是Netty IO线程），不能有阻塞操作
+ */
+public interface FutureListener<T> {
+
+    void operationComplete(ResponseFuture<T> future) throws Exception;
+}
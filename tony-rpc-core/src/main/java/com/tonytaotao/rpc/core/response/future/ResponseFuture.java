@@ -1,9 +1,28 @@
 package com.tonytaotao.rpc.core.response.future;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
 public interface ResponseFuture<T> {
 
     T get() throws InterruptedException;
 
+    T get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException;
+
+    /**
+     * 非阻塞获取结果，未完成或失败时返回null
+     * @return
+     */
+    T getNow();
+
+    /**
+     * 失败原因，未完成或成功时返回null
+     * @return
+     */
+    Throwable cause();
+
     boolean isCancelled();
 
     boolean isDone();
@@ -16,4 +35,15 @@ public interface ResponseFuture<T> {
 
     boolean isTimeout();
 
+    /**
+     * 添加完成回调，已完成时在当前线程立即执行
+     * @param listener
+     * @return
+     */
+    ResponseFuture<T> addListener(FutureListener<T> listener);
+
+    <U> ResponseFuture<U> thenApply(Function<? super T, ? extends U> fn);
+
+    CompletableFuture<T> toCompletableFuture();
+
 }
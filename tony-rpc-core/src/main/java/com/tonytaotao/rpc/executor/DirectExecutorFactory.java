@@ -0,0 +1,17 @@
+package com.tonytaotao.rpc.executor;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.tonytaotao.rpc.common.URL;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 在IO线程中直接执行，只适用于不阻塞的服务方法(如返回CompletableFuture的异步实现)
+ */
+public class DirectExecutorFactory implements ExecutorFactory {
+
+    @Override
+    public ExecutorService newExecutor(URL url, String name) {
+        return MoreExecutors.newDirectExecutorService();
+    }
+}
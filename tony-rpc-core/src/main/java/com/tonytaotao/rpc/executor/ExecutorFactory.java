@@ -0,0 +1,22 @@
+package com.tonytaotao.rpc.executor;
+
+import com.tonytaotao.rpc.common.URL;
+import com.tonytaotao.rpc.core.extension.SPI;
+import com.tonytaotao.rpc.core.extension.Scope;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 服务端业务处理线程池，通过executor参数选择：
+ * fixed 有界线程池，满时拒绝；virtual 每个请求一个虚拟线程；direct 在IO线程中直接执行
+ */
+@SPI(value = "fixed", scope = Scope.SINGLETON)
+public interface ExecutorFactory {
+
+    /**
+     * @param url 服务url，读取线程数、队列长度等参数
+     * @param name 线程名前缀
+     * @return 提交失败时抛出RejectedExecutionException
+     */
+    ExecutorService newExecutor(URL url, String name);
+}
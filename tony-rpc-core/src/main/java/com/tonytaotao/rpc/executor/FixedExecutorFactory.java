@@ -0,0 +1,30 @@
+package com.tonytaotao.rpc.executor;
+
+import com.tonytaotao.rpc.common.URL;
+import com.tonytaotao.rpc.common.UrlParamEnum;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 有界线程池：核心线程与队列都满后扩容到maxWorkerThread，仍然满时拒绝。
+ * queueSize为0时不排队，直接扩容线程
+ */
+public class FixedExecutorFactory implements ExecutorFactory {
+
+    @Override
+    public ExecutorService newExecutor(URL url, String name) {
+        int minWorkerThread = url.getIntParameterByEnum(UrlParamEnum.minWorkerThread);
+        int maxWorkerThread = Math.max(minWorkerThread, url.getIntParameterByEnum(UrlParamEnum.maxWorkerThread));
+        int queueSize = url.getIntParameterByEnum(UrlParamEnum.queueSize);
+
+        BlockingQueue<Runnable> queue = queueSize > 0 ? new ArrayBlockingQueue<>(queueSize) : new SynchronousQueue<>();
+        return new ThreadPoolExecutor(minWorkerThread, maxWorkerThread, 120, TimeUnit.SECONDS, queue,
+                new DefaultThreadFactory(name), new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,59 @@
+package com.tonytaotao.rpc.executor;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 服务独立线程池(舱壁隔离)：线程数与队列长度固定，满时立即拒绝，
+ * 避免慢服务占满同端口其他服务的处理线程
+ */
+public class ServiceExecutor extends ThreadPoolExecutor {
+
+    private final String name;
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public ServiceExecutor(String name, int threads, int queues) {
+        super(threads, threads, 0L, TimeUnit.MILLISECONDS, newQueue(queues), new DefaultThreadFactory(name), new AbortPolicy());
+        this.name = name;
+    }
+
+    private static BlockingQueue<Runnable> newQueue(int queues) {
+        return queues > 0 ? new ArrayBlockingQueue<>(queues) : new SynchronousQueue<>();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        try {
+            super.execute(command);
+        } catch (RejectedExecutionException e) {
+            rejectedCount.increment();
+            throw e;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** 排队等待的请求数 **/
+    public int getQueueDepth() {
+        return getQueue().size();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[active=%d, pool=%d, queue=%d, completed=%d, rejected=%d]",
+                name, getActiveCount(), getPoolSize(), getQueueDepth(), getCompletedTaskCount(), getRejectedCount());
+    }
+}
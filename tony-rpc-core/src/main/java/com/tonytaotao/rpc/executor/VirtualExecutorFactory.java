@@ -0,0 +1,31 @@
+package com.tonytaotao.rpc.executor;
+
+import com.tonytaotao.rpc.common.URL;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Resource;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 每个请求一个虚拟线程，适合阻塞型的服务方法，不需要调整线程数。
+ * 虚拟线程需要JDK21及以上，通过反射创建，低版本JDK退回fixed线程池
+ */
+@Slf4j
+public class VirtualExecutorFactory implements ExecutorFactory {
+
+    @Resource(name = "fixed")
+    private ExecutorFactory fallback;
+
+    @Override
+    public ExecutorService newExecutor(URL url, String name) {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.warn("virtual thread is not supported by current jdk:{}, fallback to fixed executor", System.getProperty("java.version"));
+            return fallback.newExecutor(url, name);
+        }
+    }
+}
@@ -1,13 +1,27 @@
 package com.tonytaotao.rpc.filter;
 
+import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
 import com.tonytaotao.rpc.core.request.Request;
 import com.tonytaotao.rpc.core.response.Response;
+import com.tonytaotao.rpc.core.response.future.ResponseFuture;
 import com.tonytaotao.rpc.core.extension.SPI;
 import com.tonytaotao.rpc.core.Caller;
+import com.tonytaotao.rpc.core.reference.Reference;
 
 @SPI
 public interface Filter {
 
     Response filter(Caller<?> caller, Request request);
 
+    /**
+     * 消费端异步调用的过滤，返回的future完成时调用结束。
+     * 异步调用同样经过filter链，未实现该方法的filter不支持异步调用，直接失败而不是被跳过
+     * @param reference
+     * @param request
+     * @return
+     */
+    default ResponseFuture<Response> filterAsync(Reference<?> reference, Request request) {
+        throw new FrameworkRpcException("Filter " + getClass().getName() + " does not support async call");
+    }
+
 }
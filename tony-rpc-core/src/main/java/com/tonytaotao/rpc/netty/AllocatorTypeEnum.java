@@ -0,0 +1,32 @@
+package com.tonytaotao.rpc.netty;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+
+public enum AllocatorTypeEnum {
+
+    /** 池化，优先使用直接内存 **/
+    POOLED("pooled"),
+    /** 非池化，优先使用直接内存 **/
+    UNPOOLED("unpooled");
+
+    public final String value;
+
+    AllocatorTypeEnum(String value) {
+        this.value = value;
+    }
+
+    public static AllocatorTypeEnum fromValue(String value) {
+        for (AllocatorTypeEnum type : values()) {
+            if (type.value.equalsIgnoreCase(value)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("unknown allocator:" + value);
+    }
+
+    public ByteBufAllocator allocator() {
+        return this == POOLED ? PooledByteBufAllocator.DEFAULT : UnpooledByteBufAllocator.DEFAULT;
+    }
+}
@@ -0,0 +1,92 @@
+package com.tonytaotao.rpc.netty;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelPromise;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 合并写：业务线程写入的消息先进入队列，由channel所在的EventLoop批量写出后统一flush，
+ * 达到maxBatchSize立即flush，否则最多等待maxDelay
+ */
+public class BatchFlusher {
+
+    private final Channel channel;
+    private final int maxBatchSize;
+    private final long maxDelayMicros;
+
+    private final Queue<PendingWrite> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingSize = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    /** 已提交立即flush的任务，执行前不再重复提交 **/
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    public BatchFlusher(Channel channel, int maxBatchSize, long maxDelayMicros) {
+        this.channel = channel;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMicros = maxDelayMicros;
+    }
+
+    public ChannelFuture write(Object msg) {
+        ChannelPromise promise = channel.newPromise();
+        queue.offer(new PendingWrite(msg, promise));
+
+        if (pendingSize.incrementAndGet() >= maxBatchSize) {
+            if (flushScheduled.compareAndSet(false, true)) {
+                channel.eventLoop().execute(flushTask);
+            }
+        } else if (scheduled.compareAndSet(false, true)) {
+            if (maxDelayMicros > 0) {
+                channel.eventLoop().schedule(flushTask, maxDelayMicros, TimeUnit.MICROSECONDS);
+            } else {
+                channel.eventLoop().execute(flushTask);
+            }
+        }
+        return promise;
+    }
+
+    /** 在EventLoop中执行 **/
+    private void flush() {
+        // 先复位再取队列，复位后入队的消息会重新提交flush
+        flushScheduled.set(false);
+        scheduled.set(false);
+
+        int written = 0;
+        PendingWrite pendingWrite;
+        while ((pendingWrite = queue.poll()) != null) {
+            channel.write(pendingWrite.msg, pendingWrite.promise);
+            if (++written >= maxBatchSize) {
+                channel.flush();
+                pendingSize.addAndGet(-written);
+                written = 0;
+            }
+        }
+
+        if (written > 0) {
+            channel.flush();
+            pendingSize.addAndGet(-written);
+        }
+    }
+
+    private static class PendingWrite {
+        private final Object msg;
+        private final ChannelPromise promise;
+
+        PendingWrite(Object msg, ChannelPromise promise) {
+            this.msg = msg;
+            this.promise = promise;
+        }
+    }
+}
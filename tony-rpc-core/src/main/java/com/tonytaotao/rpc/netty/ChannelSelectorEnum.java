@@ -0,0 +1,24 @@
+package com.tonytaotao.rpc.netty;
+
+public enum ChannelSelectorEnum {
+
+    /** 轮询 **/
+    ROUND_ROBIN("roundrobin"),
+    /** 未完成请求数最少 **/
+    LEAST_PENDING("leastpending");
+
+    public final String value;
+
+    ChannelSelectorEnum(String value) {
+        this.value = value;
+    }
+
+    public static ChannelSelectorEnum fromValue(String value) {
+        for (ChannelSelectorEnum selector : values()) {
+            if (selector.value.equalsIgnoreCase(value)) {
+                return selector;
+            }
+        }
+        throw new IllegalArgumentException("unknown channel selector:" + value);
+    }
+}
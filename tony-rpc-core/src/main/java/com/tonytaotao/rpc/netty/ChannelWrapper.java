@@ -4,16 +4,37 @@ import io.netty.channel.Channel;
 
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
+import io.netty.util.AttributeKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class ChannelWrapper {
     private static final Logger logger = LoggerFactory.getLogger(ChannelWrapper.class);
 
+    public static final AttributeKey<ChannelWrapper> CHANNEL_WRAPPER_KEY = AttributeKey.valueOf("tonyrpc.channelWrapper");
+
     private final ChannelFuture channelFuture;
+    /** 合并写，为null时每次写入直接flush **/
+    private final BatchFlusher batchFlusher;
+    /** 已发送未返回的请求数 **/
+    private final AtomicInteger pending = new AtomicInteger();
+    /** 已发送未返回的请求id，连接断开时据此结束这些请求 **/
+    private final Set<Long> pendingRequests = ConcurrentHashMap.newKeySet();
+    /** 等待channel恢复可写 **/
+    private final Object writableLock = new Object();
 
     public ChannelWrapper(ChannelFuture channelFuture) {
+        this(channelFuture, 0, 0);
+    }
+
+    public ChannelWrapper(ChannelFuture channelFuture, int writeBatchSize, long writeBatchDelay) {
         this.channelFuture = channelFuture;
+        this.batchFlusher = writeBatchSize > 1 ? new BatchFlusher(channelFuture.channel(), writeBatchSize, writeBatchDelay) : null;
+        channelFuture.channel().attr(CHANNEL_WRAPPER_KEY).set(this);
     }
 
     public boolean isActive() {
@@ -32,6 +53,64 @@ public class ChannelWrapper {
         return channelFuture;
     }
 
+    public ChannelFuture write(Object msg) {
+        if (batchFlusher != null) {
+            return batchFlusher.write(msg);
+        }
+        return getChannel().writeAndFlush(msg);
+    }
+
+    /**
+     * 等待channel变为可写
+     * @param timeoutMillis
+     * @return false 超时或连接已断开
+     * @throws InterruptedException
+     */
+    public boolean awaitWritable(long timeoutMillis) throws InterruptedException {
+        if (isWritable()) {
+            return true;
+        }
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (writableLock) {
+            while (!isWritable() && isActive()) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                writableLock.wait(remaining);
+            }
+        }
+        return isWritable();
+    }
+
+    /** channel可写状态变化或断开时由IO线程调用 **/
+    public void notifyWritabilityChanged() {
+        synchronized (writableLock) {
+            writableLock.notifyAll();
+        }
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    public void addPending(Long requestId) {
+        if (pendingRequests.add(requestId)) {
+            pending.incrementAndGet();
+        }
+    }
+
+    public void removePending(Long requestId) {
+        if (pendingRequests.remove(requestId)) {
+            pending.decrementAndGet();
+        }
+    }
+
+    public Set<Long> getPendingRequests() {
+        return pendingRequests;
+    }
+
     public void close(){
         getChannel().close().addListener(new ChannelFutureListener() {
             @Override
@@ -1,28 +1,34 @@
 package com.tonytaotao.rpc.netty;
 
-import com.tonytaotao.rpc.common.URL;
 import com.tonytaotao.rpc.core.response.DefaultResponse;
 import com.tonytaotao.rpc.core.response.Response;
 import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
 import com.tonytaotao.rpc.codec.Codec;
 import com.tonytaotao.rpc.common.Constants;
+import com.tonytaotao.rpc.serializer.Serializer;
+import com.tonytaotao.rpc.serializer.SerializerUtils;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.util.AttributeKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class NettyDecoder extends LengthFieldBasedFrameDecoder {
     private static final Logger logger = LoggerFactory.getLogger(NettyDecoder.class);
 
+    /** 当前连接对端使用的序列化方式 **/
+    public static final AttributeKey<Serializer> SERIALIZER_KEY = AttributeKey.valueOf("tonyrpc.serializer");
+
     private int maxFrameLength;
     private Codec codec;
-    private URL url;
+    private Serializer serializer;
+    private Serializer lastSerializer;
 
-    public NettyDecoder(Codec codec, URL url, int maxFrameLength, int lengthFieldOffset, int lengthFieldLength) {
+    public NettyDecoder(Codec codec, Serializer serializer, int maxFrameLength, int lengthFieldOffset, int lengthFieldLength) {
         super(maxFrameLength, lengthFieldOffset, lengthFieldLength);
         this.codec = codec;
-        this.url = url;
+        this.serializer = serializer;
         this.maxFrameLength = maxFrameLength;
     }
 
@@ -45,6 +51,7 @@ public class NettyDecoder extends LengthFieldBasedFrameDecoder {
         }
 
         byte messageType = in.readByte();
+        byte serializerId = in.readByte();
         long requestId = in.readLong();
         int dataLength = in.readInt();
 
@@ -62,28 +69,40 @@ public class NettyDecoder extends LengthFieldBasedFrameDecoder {
 
             if (messageType == Constants.FLAG_REQUEST) {
                 Response response = buildExceptionResponse(requestId, e);
-                ctx.write(response);
+                // 解码器在编码器之前，从channel写出才会经过编码器
+                ctx.channel().writeAndFlush(response);
                 throw e;
             } else {
                 throw e;
             }
         }
 
-        byte[] data = new byte[dataLength];
-        in.readBytes(data);
+        // 在帧数据的切片上直接解码，不拷贝到byte[]
+        ByteBuf data = in.readRetainedSlice(dataLength);
 
         try {
-            return codec.decode(url, messageType, data);
+            return codec.decode(getSerializer(ctx, serializerId), messageType, data);
         } catch (Exception e) {
             if (messageType == Constants.FLAG_REQUEST) {
                 Response response = buildExceptionResponse(requestId, e);
-                ctx.write(response);
+                ctx.channel().writeAndFlush(response);
                 return null;
             } else {
                 Response response = buildExceptionResponse(requestId, e);
                 return response;
             }
+        } finally {
+            data.release();
+        }
+    }
+
+    private Serializer getSerializer(ChannelHandlerContext ctx, byte serializerId) {
+        Serializer current = serializerId == serializer.getId() ? serializer : SerializerUtils.getSerializer(serializerId);
+        if (current != lastSerializer) {
+            lastSerializer = current;
+            ctx.channel().attr(SERIALIZER_KEY).set(current);
         }
+        return current;
     }
 
     private Response buildExceptionResponse(long requestId, Exception e) {
@@ -1,11 +1,11 @@
 package com.tonytaotao.rpc.netty;
 
-import com.tonytaotao.rpc.common.URL;
 import com.tonytaotao.rpc.core.response.DefaultResponse;
 import com.tonytaotao.rpc.core.request.Request;
 import com.tonytaotao.rpc.core.response.Response;
 import com.tonytaotao.rpc.codec.Codec;
 import com.tonytaotao.rpc.common.Constants;
+import com.tonytaotao.rpc.serializer.Serializer;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
@@ -15,37 +15,53 @@ import org.slf4j.LoggerFactory;
 public class NettyEncoder extends MessageToByteEncoder {
     private static final Logger logger = LoggerFactory.getLogger(NettyEncoder.class);
     private Codec codec;
-    private URL url;
+    private Serializer serializer;
 
-    public NettyEncoder(Codec codec, URL url) {
+    public NettyEncoder(Codec codec, Serializer serializer) {
         this.codec = codec;
-        this.url = url;
+        this.serializer = serializer;
     }
 
     @Override
     protected void encode(ChannelHandlerContext ctx, Object msg, ByteBuf out) throws Exception {
 
         long requestId = getRequestId(msg);
-        byte[] data = null;
+        int headerIndex = out.writerIndex();
+
+        // 响应沿用请求所使用的序列化方式
+        Serializer serializer = ctx.channel().attr(NettyDecoder.SERIALIZER_KEY).get();
+        if (serializer == null) {
+            serializer = this.serializer;
+        }
+
+        writeHeader(out, getType(msg), serializer.getId(), requestId);
+        int bodyIndex = out.writerIndex();
 
         if (msg instanceof Response) {
             try {
-                data = codec.encode(url, msg);
+                codec.encode(serializer, msg, out);
             } catch (Exception e) {
                 logger.error("RpcEncoder encode error, requestId=" + requestId, e);
                 Response response = buildExceptionResponse(requestId, e);
-                data = codec.encode(url, response);
+                // 丢弃已写入的部分数据，重新写入异常响应
+                out.writerIndex(bodyIndex);
+                codec.encode(serializer, response, out);
             }
         } else {
-            data = codec.encode(url, msg);
+            codec.encode(serializer, msg, out);
         }
 
+        // 回填消息体长度
+        out.setInt(headerIndex + Constants.HEADER_SIZE - 4, out.writerIndex() - bodyIndex);
+    }
+
+    private void writeHeader(ByteBuf out, byte messageType, byte serializerId, long requestId) {
         out.writeShort(Constants.NETTY_MAGIC_TYPE);
-        out.writeByte(getType(msg));
+        out.writeByte(messageType);
+        out.writeByte(serializerId);
         out.writeLong(requestId);
-        out.writeInt(data.length);
-
-        out.writeBytes(data);
+        // 长度占位，编码完成后回填
+        out.writeInt(0);
     }
 
     private byte getType(Object message) {
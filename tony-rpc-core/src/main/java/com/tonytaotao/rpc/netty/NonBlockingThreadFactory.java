@@ -0,0 +1,34 @@
+package com.tonytaotao.rpc.netty;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.FastThreadLocalThread;
+
+/**
+ * IO线程与定时器线程的工厂。这些线程上执行的是响应、超时等回调，在其中发起的调用不能阻塞：
+ * 连接未建立或写缓冲区已满时直接失败，而不是等待连接或等待可写
+ */
+public class NonBlockingThreadFactory extends DefaultThreadFactory {
+
+    public NonBlockingThreadFactory(String poolName, boolean daemon) {
+        super(poolName, daemon);
+    }
+
+    @Override
+    protected Thread newThread(Runnable r, String name) {
+        return new NonBlockingThread(threadGroup, r, name);
+    }
+
+    /**
+     * 当前线程是否为不能阻塞的IO线程或定时器线程
+     * @return
+     */
+    public static boolean isNonBlockingThread() {
+        return Thread.currentThread() instanceof NonBlockingThread;
+    }
+
+    private static class NonBlockingThread extends FastThreadLocalThread {
+        NonBlockingThread(ThreadGroup group, Runnable target, String name) {
+            super(group, target, name);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.tonytaotao.rpc.netty;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadFactory;
+
+public enum TransportTypeEnum {
+
+    /** linux下epoll可用时使用epoll，否则nio **/
+    AUTO("auto"),
+    NIO("nio"),
+    EPOLL("epoll");
+
+    private static final Logger logger = LoggerFactory.getLogger(TransportTypeEnum.class);
+
+    public final String value;
+
+    TransportTypeEnum(String value) {
+        this.value = value;
+    }
+
+    /**
+     * 解析为实际可用的传输类型，epoll不可用时退回nio
+     * @param value
+     * @return NIO 或 EPOLL
+     */
+    public static TransportTypeEnum resolve(String value) {
+        TransportTypeEnum type = null;
+        for (TransportTypeEnum t : values()) {
+            if (t.value.equalsIgnoreCase(value)) {
+                type = t;
+            }
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("unknown transport:" + value);
+        }
+
+        if (type == NIO) {
+            return NIO;
+        }
+        if (Epoll.isAvailable()) {
+            return EPOLL;
+        }
+        if (type == EPOLL) {
+            logger.warn("epoll transport is not available, fallback to nio", Epoll.unavailabilityCause());
+        }
+        return NIO;
+    }
+
+    public boolean isEpoll() {
+        return this == EPOLL;
+    }
+
+    public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+        return isEpoll() ? new EpollEventLoopGroup(threads, threadFactory) : new NioEventLoopGroup(threads, threadFactory);
+    }
+
+    public Class<? extends SocketChannel> socketChannelClass() {
+        return isEpoll() ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    public Class<? extends ServerSocketChannel> serverSocketChannelClass() {
+        return isEpoll() ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+}
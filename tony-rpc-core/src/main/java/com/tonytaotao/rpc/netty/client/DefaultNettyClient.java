@@ -4,6 +4,7 @@ import com.tonytaotao.rpc.codec.Codec;
 import com.tonytaotao.rpc.common.URL;
 import com.tonytaotao.rpc.common.UrlParamEnum;
 import com.tonytaotao.rpc.core.extension.ExtensionLoader;
+import com.tonytaotao.rpc.core.RpcContext;
 import com.tonytaotao.rpc.core.request.Request;
 import com.tonytaotao.rpc.core.response.DefaultResponse;
 import com.tonytaotao.rpc.core.response.Response;
@@ -11,48 +12,59 @@ import com.tonytaotao.rpc.core.response.future.DefaultResponseFuture;
 import com.tonytaotao.rpc.core.response.future.ResponseFuture;
 import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
 import com.tonytaotao.rpc.common.exception.TransportRpcException;
+import com.tonytaotao.rpc.netty.AllocatorTypeEnum;
+import com.tonytaotao.rpc.netty.ChannelSelectorEnum;
 import com.tonytaotao.rpc.netty.ChannelStateEnum;
 import com.tonytaotao.rpc.netty.ChannelWrapper;
 import com.tonytaotao.rpc.netty.NettyDecoder;
 import com.tonytaotao.rpc.netty.NettyEncoder;
+import com.tonytaotao.rpc.netty.NonBlockingThreadFactory;
+import com.tonytaotao.rpc.serializer.Serializer;
 import com.tonytaotao.rpc.common.Constants;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollMode;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 @Slf4j
 public class DefaultNettyClient implements NettyClient {
 
-    private EventLoopGroup group = new NioEventLoopGroup();
+    private NettyClientResources resources;
     private Bootstrap b = new Bootstrap();
 
-    private final ConcurrentHashMap<Long, ResponseFuture> responseFutureMap = new ConcurrentHashMap<>(256);
+    private final ConcurrentHashMap<Long, ResponseFuture<Response>> responseFutureMap = new ConcurrentHashMap<>(256);
 
-    private ScheduledExecutorService scheduledExecutorService;
     private int timeout;
 
     private volatile boolean initializing;
 
-    private volatile ChannelWrapper channelWrapper;
+    /** 到同一服务提供者的多个连接，断开后按槽位惰性重连 **/
+    private AtomicReferenceArray<ChannelWrapper> channelWrappers;
+    private ChannelSelectorEnum channelSelector;
+    private final AtomicInteger roundRobinIndex = new AtomicInteger();
 
     private InetSocketAddress localAddress;
     private InetSocketAddress remoteAddress;
 
     private URL url;
     private Codec codec;
+    private Serializer serializer;
+
+    private boolean blockOnUnwritable;
+    private int writeBatchSize;
+    private int writeBatchDelay;
 
     private volatile ChannelStateEnum state = ChannelStateEnum.NEW;
 
@@ -61,14 +73,17 @@ public class DefaultNettyClient implements NettyClient {
         this.remoteAddress = new InetSocketAddress(url.getHost(), url.getPort());
 
         this.timeout = url.getIntParameterByEnum(UrlParamEnum.requestTimeout);
-
-        this.scheduledExecutorService = new ScheduledThreadPoolExecutor(5, new DefaultThreadFactory(String.format("%s-%s", Constants.FRAMEWORK_NAME, "future")));
-
-        this.scheduledExecutorService.scheduleAtFixedRate(() -> { scanRpcFutureTable(); }, 0, 5000, TimeUnit.MILLISECONDS);
+        this.blockOnUnwritable = !"fail".equalsIgnoreCase(url.getStrParameterByEnum(UrlParamEnum.backpressure));
+        this.writeBatchSize = url.getIntParameterByEnum(UrlParamEnum.writeBatchSize);
+        this.writeBatchDelay = url.getIntParameterByEnum(UrlParamEnum.writeBatchDelay);
+        this.channelWrappers = new AtomicReferenceArray<>(Math.max(1, url.getIntParameterByEnum(UrlParamEnum.connections)));
+        this.channelSelector = ChannelSelectorEnum.fromValue(url.getStrParameterByEnum(UrlParamEnum.channelSelector));
 
         this.codec = ExtensionLoader.getExtensionLoader(Codec.class).getExtension(url.getStrParameterByEnum(UrlParamEnum.codec));
+        this.serializer = ExtensionLoader.getExtensionLoader(Serializer.class).getExtension(url.getStrParameterByEnum(UrlParamEnum.serialization));
 
-        log.info("NettyClient init url:" + url.getHost() + "-" + url.getPath() + ", use codec:" + codec.getClass().getSimpleName());
+        log.info("NettyClient init url:" + url.getHost() + "-" + url.getPath() + ", use codec:" + codec.getClass().getSimpleName()
+                + ", serializer:" + serializer.getClass().getSimpleName());
     }
 
     @Override
@@ -98,26 +113,52 @@ public class DefaultNettyClient implements NettyClient {
         // 最大响应包限制
         final int maxContentLength = url.getIntParameterByEnum(UrlParamEnum.maxContentLength);
 
-        b.group(group).channel(NioSocketChannel.class)
+        this.resources = NettyClientResources.retain(url);
+
+        // 上次open失败时Bootstrap已绑定释放掉的EventLoopGroup，重新创建
+        b = new Bootstrap();
+        b.group(resources.getEventLoopGroup()).channel(resources.getTransportType().socketChannelClass())
                 .option(ChannelOption.TCP_NODELAY, true)
                 .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, url.getIntParameterByEnum(UrlParamEnum.connectTimeout))
                 .option(ChannelOption.SO_RCVBUF, url.getIntParameterByEnum(UrlParamEnum.bufferSize))
                 .option(ChannelOption.SO_SNDBUF, url.getIntParameterByEnum(UrlParamEnum.bufferSize))
+                .option(ChannelOption.ALLOCATOR, AllocatorTypeEnum.fromValue(url.getStrParameterByEnum(UrlParamEnum.allocator)).allocator())
+                .option(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(url.getIntParameterByEnum(UrlParamEnum.writeBufferLowWaterMark),
+                        url.getIntParameterByEnum(UrlParamEnum.writeBufferHighWaterMark)))
                 .handler(new ChannelInitializer<SocketChannel>() {
                     @Override
                     public void initChannel(SocketChannel ch) throws Exception {
-                        ch.pipeline().addLast(new NettyDecoder(codec, url, maxContentLength, Constants.HEADER_SIZE, 4),
-                                new NettyEncoder(codec, url),
+                        ch.pipeline().addLast(new NettyDecoder(codec, serializer, maxContentLength, Constants.HEADER_SIZE, 4),
+                                new NettyEncoder(codec, serializer),
                                 new NettyClientHandler());
                     }
                 });
+        if (resources.getTransportType().isEpoll()) {
+            b.option(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED)
+                    .option(EpollChannelOption.TCP_QUICKACK, true);
+        }
 
         try {
-            ChannelFuture channelFuture = b.connect(this.remoteAddress).sync();
-            this.channelWrapper = new ChannelWrapper(channelFuture);
-        } catch (InterruptedException e) {
+            for (int i = 0; i < channelWrappers.length(); i++) {
+                channelWrappers.set(i, connect());
+            }
+        } catch (Throwable e) {
+            // 连接被拒绝、连接超时等异常同样需要关闭已建立的连接并释放共享的EventLoopGroup和定时器
+            for (int i = 0; i < channelWrappers.length(); i++) {
+                ChannelWrapper channelWrapper = channelWrappers.getAndSet(i, null);
+                if (channelWrapper != null) {
+                    channelWrapper.close();
+                }
+            }
+            resources.release();
+            resources = null;
+            initializing = false;
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
             log.error(String.format("NettyClient connect to address:%s failure", this.remoteAddress), e);
-            throw new FrameworkRpcException(String.format("NettyClient connect to address:%s failure"), e);
+            throw new FrameworkRpcException(String.format("NettyClient connect to address:%s failure", this.remoteAddress), e);
         }
 
         state = ChannelStateEnum.AVAILABLE;
@@ -141,12 +182,13 @@ public class DefaultNettyClient implements NettyClient {
 
     @Override
     public Response invokeSync(final Request request) throws InterruptedException, TransportRpcException {
-        Channel channel = getChannel();
+        applyTimeout(request);
+        ChannelWrapper channel = getChannel();
         if (channel != null && channel.isActive()) {
-            final ResponseFuture<Response> rpcFuture = new DefaultResponseFuture<>(timeout);
-            this.responseFutureMap.put(request.getRequestId(), rpcFuture);
+            checkWritable(channel, request);
+            final ResponseFuture<Response> rpcFuture = newResponseFuture(channel, request);
             //写数据
-            channel.writeAndFlush(request).addListener(new ChannelFutureListener() {
+            channel.write(request).addListener(new ChannelFutureListener() {
                 @Override
                 public void operationComplete(ChannelFuture future) throws Exception {
 
@@ -167,19 +209,23 @@ public class DefaultNettyClient implements NettyClient {
     }
 
     @Override
-    public ResponseFuture invokeAsync(final Request request) throws InterruptedException, TransportRpcException {
-        Channel channel = getChannel();
+    public ResponseFuture<Response> invokeAsync(final Request request) throws InterruptedException, TransportRpcException {
+        applyTimeout(request);
+        ChannelWrapper channel = getChannel();
         if (channel != null && channel.isActive()) {
-
-            final ResponseFuture<Response> rpcFuture = new DefaultResponseFuture<>(timeout);
-            this.responseFutureMap.put(request.getRequestId(), rpcFuture);
+            checkWritable(channel, request);
+            final ResponseFuture<Response> rpcFuture = newResponseFuture(channel, request);
             //写数据
-            channel.writeAndFlush(request).addListener(new ChannelFutureListener() {
+            channel.write(request).addListener(new ChannelFutureListener() {
                 @Override
                 public void operationComplete(ChannelFuture future) throws Exception {
 
                     if (future.isSuccess()) {
                         log.info("send success, request id:{}", request.getRequestId());
+                    } else {
+                        log.info("send failure, request id:{}", request.getRequestId());
+                        responseFutureMap.remove(request.getRequestId());
+                        rpcFuture.setFailure(future.cause());
                     }
                 }
             });
@@ -191,10 +237,12 @@ public class DefaultNettyClient implements NettyClient {
 
     @Override
     public void invokeOneway(final Request request) throws InterruptedException, TransportRpcException {
-        Channel channel = getChannel();
+        applyTimeout(request);
+        ChannelWrapper channel = getChannel();
         if (channel != null && channel.isActive()) {
+            checkWritable(channel, request);
             //写数据
-            channel.writeAndFlush(request).addListener(new ChannelFutureListener() {
+            channel.write(request).addListener(new ChannelFutureListener() {
                 @Override
                 public void operationComplete(ChannelFuture future) throws Exception {
 
@@ -224,8 +272,17 @@ public class DefaultNettyClient implements NettyClient {
         }
 
         try {
-            this.scheduledExecutorService.shutdown();
-            this.group.shutdownGracefully();
+            for (int i = 0; i < channelWrappers.length(); i++) {
+                ChannelWrapper channelWrapper = channelWrappers.get(i);
+                if (channelWrapper != null) {
+                    channelWrapper.close();
+                }
+            }
+            // 关闭后不会再收到响应，共享的超时定时器也可能随之停止，未完成的请求在此结束
+            failPending(responseFutureMap.keySet(), "client closed, remote address:" + remoteAddress);
+            if (resources != null) {
+                resources.release();
+            }
 
             state = ChannelStateEnum.CLOSED;
         } catch (Exception e) {
@@ -240,19 +297,41 @@ public class DefaultNettyClient implements NettyClient {
         @Override
         public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
 
-            logger.info("client read msg:{}, ", msg);
             if(msg instanceof Response) {
                 DefaultResponse response = (DefaultResponse) msg;
 
-                ResponseFuture<Response> rpcFuture =responseFutureMap.get(response.getRequestId());
+                ResponseFuture<Response> rpcFuture = responseFutureMap.remove(response.getRequestId());
                 if(rpcFuture!=null) {
-                    responseFutureMap.remove(response.getRequestId());
                     rpcFuture.setResult(response);
                 }
 
             }
         }
 
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+            notifyWritabilityChanged(ctx);
+            super.channelWritabilityChanged(ctx);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            notifyWritabilityChanged(ctx);
+            // 连接断开后不会再收到这些请求的响应，直接结束而不是等到超时
+            ChannelWrapper channelWrapper = ctx.channel().attr(ChannelWrapper.CHANNEL_WRAPPER_KEY).get();
+            if (channelWrapper != null) {
+                failPending(channelWrapper.getPendingRequests(), "channel closed, remote address:" + remoteAddress);
+            }
+            super.channelInactive(ctx);
+        }
+
+        private void notifyWritabilityChanged(ChannelHandlerContext ctx) {
+            ChannelWrapper channelWrapper = ctx.channel().attr(ChannelWrapper.CHANNEL_WRAPPER_KEY).get();
+            if (channelWrapper != null) {
+                channelWrapper.notifyWritabilityChanged();
+            }
+        }
+
         @Override
         public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
             logger.error("client caught exception", cause);
@@ -260,41 +339,125 @@ public class DefaultNettyClient implements NettyClient {
         }
     }
 
-    private Channel getChannel() throws InterruptedException {
+    /** channel写缓冲区超过高水位时按backpressure配置阻塞等待或直接失败 **/
+    private void checkWritable(ChannelWrapper channel, Request request) throws InterruptedException {
+        if (channel.isWritable()) {
+            return;
+        }
+        // 异步回调、重试可能运行在IO线程或超时定时器线程中，此时等待会阻塞写出和其他请求的超时，直接失败
+        if (blockOnUnwritable && !NonBlockingThreadFactory.isNonBlockingThread() && channel.awaitWritable(request.getTimeout())) {
+            return;
+        }
+        throw new TransportRpcException("channel not writable. request id:" + request.getRequestId() + ", remote address:" + remoteAddress);
+    }
 
-        if (this.channelWrapper != null && this.channelWrapper.isActive()) {
-            return this.channelWrapper.getChannel();
+    /**
+     * 设置请求的超时时间并随请求发送给服务端，在服务方法内发起的调用不超过上游请求剩余的时间；
+     * 请求上已设置更短的超时时间(如对冲请求只有原请求剩余的时间)时保留该值
+     */
+    private void applyTimeout(Request request) {
+        int requestTimeout = request.getTimeout() > 0 ? Math.min(request.getTimeout(), timeout) : timeout;
+        RpcContext context = RpcContext.getContext();
+        if (context.hasDeadline()) {
+            long remaining = context.getRemainingTimeout();
+            if (remaining <= 0) {
+                throw new TransportRpcException("request deadline exceeded before send, request id:" + request.getRequestId() + ", remote address:" + remoteAddress);
+            }
+            requestTimeout = (int) Math.min(requestTimeout, remaining);
+        }
+        request.setTimeout(requestTimeout);
+    }
+
+    private ChannelWrapper getChannel() throws InterruptedException {
+
+        int index = selectChannel();
+        ChannelWrapper channelWrapper = this.channelWrappers.get(index);
+        if (channelWrapper != null && channelWrapper.isActive()) {
+            return channelWrapper;
+        }
+        // IO线程和定时器线程上不能同步建连，也不能等待其他线程建连持有的锁
+        if (NonBlockingThreadFactory.isNonBlockingThread()) {
+            throw new TransportRpcException("channel not connected. remote address:" + remoteAddress);
         }
 
         synchronized (this){
-            // 发起异步连接操作
-            ChannelFuture channelFuture = b.connect(this.remoteAddress).sync();
-            this.channelWrapper = new ChannelWrapper(channelFuture);
+            channelWrapper = this.channelWrappers.get(index);
+            if (channelWrapper == null || !channelWrapper.isActive()) {
+                if (channelWrapper != null) {
+                    channelWrapper.close();
+                }
+                // 重连该槽位
+                channelWrapper = connect();
+                this.channelWrappers.set(index, channelWrapper);
+            }
         }
 
-        return this.channelWrapper.getChannel();
+        return channelWrapper;
     }
 
-    /**定时清理超时Future**/
-    private void scanRpcFutureTable() {
-
-        long currentTime = System.currentTimeMillis();
-        log.info("scan timeout RpcFuture, currentTime:{}", currentTime);
+    private ChannelWrapper connect() throws InterruptedException {
+        ChannelFuture channelFuture = b.connect(this.remoteAddress).sync();
+        return new ChannelWrapper(channelFuture, writeBatchSize, writeBatchDelay);
+    }
 
-        final List<ResponseFuture> timeoutFutureList = new ArrayList<>();
-        Iterator<Map.Entry<Long, ResponseFuture>> it = this.responseFutureMap.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<Long, ResponseFuture> next = it.next();
-            ResponseFuture future = next.getValue();
+    private int selectChannel() {
+        int size = this.channelWrappers.length();
+        if (size == 1) {
+            return 0;
+        }
 
-            if (future.isTimeout()) {  //超时
-                it.remove();
-                timeoutFutureList.add(future);
+        if (channelSelector == ChannelSelectorEnum.LEAST_PENDING) {
+            int index = -1;
+            int minPending = Integer.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                ChannelWrapper channelWrapper = this.channelWrappers.get(i);
+                if (channelWrapper != null && channelWrapper.isActive() && channelWrapper.getPending() < minPending) {
+                    minPending = channelWrapper.getPending();
+                    index = i;
+                }
+            }
+            if (index >= 0) {
+                return index;
             }
         }
+        return (roundRobinIndex.getAndIncrement() & Integer.MAX_VALUE) % size;
+    }
 
-        for (ResponseFuture future : timeoutFutureList) {
-            //释放资源
+    private void failPending(Iterable<Long> requestIds, String message) {
+        for (Long requestId : requestIds) {
+            ResponseFuture<Response> future = responseFutureMap.remove(requestId);
+            if (future != null) {
+                future.setFailure(new TransportRpcException(message + ", request id:" + requestId));
+            }
         }
     }
+
+    /**
+     * 创建future并登记超时任务：超时后从responseFutureMap移除并以TransportRpcException结束，
+     * 正常返回时取消超时任务；同时维护连接上未完成的请求数
+     */
+    private ResponseFuture<Response> newResponseFuture(final ChannelWrapper channelWrapper, final Request request) {
+        final Long requestId = request.getRequestId();
+        final int timeout = request.getTimeout();
+        final ResponseFuture<Response> rpcFuture = new DefaultResponseFuture<>(timeout);
+        this.responseFutureMap.put(requestId, rpcFuture);
+
+        final Timeout timeoutTask = resources.getTimer().newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout t) throws Exception {
+                ResponseFuture<Response> future = responseFutureMap.remove(requestId);
+                if (future != null) {
+                    future.setFailure(new TransportRpcException(String.format("request timeout, request id:%s, timeout:%sms, remote address:%s",
+                            requestId, timeout, remoteAddress)));
+                }
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+
+        channelWrapper.addPending(requestId);
+        rpcFuture.addListener(future -> {
+            timeoutTask.cancel();
+            channelWrapper.removePending(requestId);
+        });
+        return rpcFuture;
+    }
 }
@@ -10,7 +10,7 @@ public interface NettyClient extends Endpoint {
 
     Response invokeSync(final Request request) throws InterruptedException, TransportRpcException;
 
-    ResponseFuture invokeAsync(final Request request) throws InterruptedException, TransportRpcException;
+    ResponseFuture<Response> invokeAsync(final Request request) throws InterruptedException, TransportRpcException;
 
     void invokeOneway(final Request request) throws InterruptedException, TransportRpcException;
 
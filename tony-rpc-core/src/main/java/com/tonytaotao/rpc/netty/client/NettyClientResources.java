@@ -0,0 +1,77 @@
+package com.tonytaotao.rpc.netty.client;
+
+import com.tonytaotao.rpc.common.Constants;
+import com.tonytaotao.rpc.common.URL;
+import com.tonytaotao.rpc.common.UrlParamEnum;
+import com.tonytaotao.rpc.netty.NonBlockingThreadFactory;
+import com.tonytaotao.rpc.netty.TransportTypeEnum;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JVM内所有NettyClient共享的IO线程组与超时时间轮，按引用计数管理，最后一个客户端关闭时释放
+ */
+@Slf4j
+public final class NettyClientResources {
+
+    private static NettyClientResources instance;
+    private static int refCount;
+
+    private final TransportTypeEnum transportType;
+    private final EventLoopGroup eventLoopGroup;
+    private final Timer timer;
+
+    private NettyClientResources(TransportTypeEnum transportType, int ioThreads) {
+        this.transportType = transportType;
+        this.eventLoopGroup = transportType.newEventLoopGroup(ioThreads,
+                new NonBlockingThreadFactory(String.format("%s-%s", Constants.FRAMEWORK_NAME, "client-io"), true));
+        this.timer = new HashedWheelTimer(
+                new NonBlockingThreadFactory(String.format("%s-%s", Constants.FRAMEWORK_NAME, "timeout"), true), 10, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 获取共享资源并增加引用计数，传输类型与线程数以第一个创建资源的客户端配置为准
+     * @param url
+     * @return
+     */
+    public static synchronized NettyClientResources retain(URL url) {
+        if (instance == null) {
+            TransportTypeEnum transportType = TransportTypeEnum.resolve(url.getStrParameterByEnum(UrlParamEnum.transport));
+            int ioThreads = url.getIntParameterByEnum(UrlParamEnum.ioThreads);
+            instance = new NettyClientResources(transportType, ioThreads);
+            log.info("NettyClientResources created, transport:{}, ioThreads:{}", transportType.value, ioThreads > 0 ? ioThreads : "default");
+        }
+        refCount++;
+        return instance;
+    }
+
+    public void release() {
+        synchronized (NettyClientResources.class) {
+            if (instance != this) {
+                return;
+            }
+            if (--refCount == 0) {
+                instance = null;
+                eventLoopGroup.shutdownGracefully();
+                timer.stop();
+                log.info("NettyClientResources released");
+            }
+        }
+    }
+
+    public TransportTypeEnum getTransportType() {
+        return transportType;
+    }
+
+    public EventLoopGroup getEventLoopGroup() {
+        return eventLoopGroup;
+    }
+
+    public Timer getTimer() {
+        return timer;
+    }
+}
@@ -0,0 +1,116 @@
+package com.tonytaotao.rpc.netty.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 自适应并发限制(Vegas)：以观察到的最小耗时作为无排队耗时，
+ * 按 limit * (1 - minRtt / rtt) 估算排队的请求数，排队少时增大限制，排队多时减小限制。
+ * 限制不低于处理线程数，不超过线程数时请求不会排队
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /** 每隔多少个样本重新探测最小耗时，适应服务本身耗时的变化 **/
+    private static final int PROBE_INTERVAL = 1000;
+    /** 每凑满一个窗口的样本按窗口内的平均耗时调整一次限制 **/
+    private static final int WINDOW_SIZE = 10;
+    /** window低位为耗时之和，高位为样本数 **/
+    private static final int COUNT_SHIFT = 56;
+    private static final long SUM_MASK = (1L << COUNT_SHIFT) - 1;
+    private static final long MAX_SAMPLE_NANOS = SUM_MASK / WINDOW_SIZE;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile int limit;
+
+    private final AtomicLong minRttNanos = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong sampleCount = new AtomicLong();
+    /** 当前窗口的样本数与耗时之和，一起CAS更新，凑满窗口时清零，样本不会落入错误的窗口 **/
+    private final AtomicLong window = new AtomicLong();
+
+    public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = this.minLimit;
+    }
+
+    /**
+     * @return false 超过当前并发限制，应拒绝请求
+     */
+    public boolean tryAcquire() {
+        for (;;) {
+            int current = inflight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 请求结束，释放tryAcquire获得的名额
+     * @param rttNanos 从接收到处理完成的耗时，小于等于0时不作为样本
+     */
+    public void release(long rttNanos) {
+        int current = inflight.getAndDecrement();
+        if (rttNanos > 0) {
+            update(rttNanos, current);
+        }
+    }
+
+    /** 样本只做原子累加，凑满窗口的线程重新计算限制，请求结束的路径上没有锁 **/
+    private void update(long rttNanos, int currentInflight) {
+        if (sampleCount.incrementAndGet() % PROBE_INTERVAL == 0) {
+            minRttNanos.set(rttNanos);
+        } else {
+            long min;
+            while (rttNanos < (min = minRttNanos.get()) && !minRttNanos.compareAndSet(min, rttNanos)) {
+                // 其他线程更新了最小耗时，重新比较
+            }
+        }
+
+        // 并发未达到限制的一半时样本不能说明限制是否合适
+        if (currentInflight * 2 < limit) {
+            return;
+        }
+        long sample = Math.min(rttNanos, MAX_SAMPLE_NANOS);
+        for (;;) {
+            long current = window.get();
+            int count = (int) (current >>> COUNT_SHIFT) + 1;
+            long sum = (current & SUM_MASK) + sample;
+            if (count < WINDOW_SIZE) {
+                if (window.compareAndSet(current, ((long) count << COUNT_SHIFT) | sum)) {
+                    return;
+                }
+            } else if (window.compareAndSet(current, 0L)) {
+                // 凑满窗口的线程取出样本并计算
+                updateLimit(sum / WINDOW_SIZE);
+                return;
+            }
+        }
+    }
+
+    private void updateLimit(long avgRttNanos) {
+        int currentLimit = this.limit;
+        int queueSize = (int) Math.ceil(currentLimit * (1 - (double) minRttNanos.get() / avgRttNanos));
+        int step = Math.max(1, (int) Math.log10(currentLimit));
+        int newLimit = currentLimit;
+        if (queueSize < 3 * step) {
+            newLimit = currentLimit + step;
+        } else if (queueSize > 6 * step) {
+            newLimit = currentLimit - step;
+        }
+        this.limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+}
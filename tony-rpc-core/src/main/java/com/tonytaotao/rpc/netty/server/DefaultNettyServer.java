@@ -5,46 +5,59 @@ import com.tonytaotao.rpc.common.URL;
 import com.tonytaotao.rpc.common.UrlParamEnum;
 import com.tonytaotao.rpc.core.extension.ExtensionLoader;
 import com.tonytaotao.rpc.core.request.DefaultRequest;
+import com.tonytaotao.rpc.core.response.AsyncResponse;
 import com.tonytaotao.rpc.core.response.DefaultResponse;
+import com.tonytaotao.rpc.core.response.Response;
 import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
+import com.tonytaotao.rpc.common.exception.OverloadRpcException;
 import com.tonytaotao.rpc.core.message.DefaultMessageHandler;
 import com.tonytaotao.rpc.core.RpcContext;
+import com.tonytaotao.rpc.executor.ExecutorFactory;
+import com.tonytaotao.rpc.netty.AllocatorTypeEnum;
+import com.tonytaotao.rpc.netty.BatchFlusher;
 import com.tonytaotao.rpc.netty.ChannelStateEnum;
 import com.tonytaotao.rpc.netty.NettyDecoder;
 import com.tonytaotao.rpc.netty.NettyEncoder;
+import com.tonytaotao.rpc.netty.NonBlockingThreadFactory;
+import com.tonytaotao.rpc.netty.TransportTypeEnum;
+import com.tonytaotao.rpc.serializer.Serializer;
 import com.tonytaotao.rpc.common.Constants;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollMode;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
-import io.netty.util.concurrent.DefaultThreadFactory;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public class DefaultNettyServer implements NettyServer {
 
-    private EventLoopGroup bossGroup = new NioEventLoopGroup(1);
-    private EventLoopGroup workerGroup = new NioEventLoopGroup();
+    private TransportTypeEnum transportType;
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
     private ServerBootstrap serverBootstrap = new ServerBootstrap();
 
-    private ThreadPoolExecutor threadPoolExecutor;    //业务处理线程池
+    private ExecutorService executor;    //业务处理线程池
     private DefaultMessageHandler messageHandler;
+    /** 过载保护，未开启时为null **/
+    private AdaptiveConcurrencyLimiter limiter;
 
     private InetSocketAddress localAddress;
     private InetSocketAddress remoteAddress;
 
     private URL url;
     private Codec codec;
+    private Serializer serializer;
 
     private volatile ChannelStateEnum state = ChannelStateEnum.NEW;
 
@@ -53,12 +66,16 @@ public class DefaultNettyServer implements NettyServer {
     public DefaultNettyServer(URL url, DefaultMessageHandler messageHandler){
         this.url = url;
         this.codec = ExtensionLoader.getExtensionLoader(Codec.class).getExtension(url.getStrParameterByEnum(UrlParamEnum.codec));
+        this.serializer = ExtensionLoader.getExtensionLoader(Serializer.class).getExtension(url.getStrParameterByEnum(UrlParamEnum.serialization));
         this.localAddress = new InetSocketAddress(url.getPort());
+        this.transportType = TransportTypeEnum.resolve(url.getStrParameterByEnum(UrlParamEnum.transport));
         this.messageHandler = messageHandler;
-        this.threadPoolExecutor = new ThreadPoolExecutor(url.getIntParameterByEnum(UrlParamEnum.minWorkerThread),
-                url.getIntParameterByEnum(UrlParamEnum.maxWorkerThread),
-                120, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
-                new DefaultThreadFactory(String.format("%s-%s", Constants.FRAMEWORK_NAME, "biz")));
+        this.executor = ExtensionLoader.getExtensionLoader(ExecutorFactory.class).getExtension(url.getStrParameterByEnum(UrlParamEnum.executor))
+                .newExecutor(url, String.format("%s-%s", Constants.FRAMEWORK_NAME, "biz"));
+        if (Boolean.parseBoolean(url.getStrParameterByEnum(UrlParamEnum.overloadProtect))) {
+            this.limiter = new AdaptiveConcurrencyLimiter(url.getIntParameterByEnum(UrlParamEnum.minWorkerThread),
+                    url.getIntParameterByEnum(UrlParamEnum.maxWorkerThread));
+        }
     }
 
     @Override
@@ -86,41 +103,60 @@ public class DefaultNettyServer implements NettyServer {
         // 最大响应包限制
         final int maxContentLength = url.getIntParameterByEnum(UrlParamEnum.maxContentLength);
 
+        // epoll下通过SO_REUSEPORT多次绑定同一端口，由内核在多个acceptor间分发连接
+        final int acceptors = transportType.isEpoll() ? Math.max(1, url.getIntParameterByEnum(UrlParamEnum.acceptors)) : 1;
+        this.bossGroup = transportType.newEventLoopGroup(acceptors, new NonBlockingThreadFactory(String.format("%s-%s", Constants.FRAMEWORK_NAME, "boss"), false));
+        this.workerGroup = transportType.newEventLoopGroup(0, new NonBlockingThreadFactory(String.format("%s-%s", Constants.FRAMEWORK_NAME, "worker"), false));
+
+        final ByteBufAllocator allocator = AllocatorTypeEnum.fromValue(url.getStrParameterByEnum(UrlParamEnum.allocator)).allocator();
+
         this.serverBootstrap.group(bossGroup, workerGroup)
-                .channel(NioServerSocketChannel.class)
+                .channel(transportType.serverSocketChannelClass())
                 .option(ChannelOption.SO_BACKLOG, 128)
                 .childOption(ChannelOption.TCP_NODELAY, true)
                 .childOption(ChannelOption.SO_RCVBUF, url.getIntParameterByEnum(UrlParamEnum.bufferSize))
                 .childOption(ChannelOption.SO_SNDBUF, url.getIntParameterByEnum(UrlParamEnum.bufferSize))
+                .option(ChannelOption.ALLOCATOR, allocator)
+                .childOption(ChannelOption.ALLOCATOR, allocator)
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(url.getIntParameterByEnum(UrlParamEnum.writeBufferLowWaterMark),
+                        url.getIntParameterByEnum(UrlParamEnum.writeBufferHighWaterMark)))
                 .handler(new LoggingHandler(LogLevel.INFO))
                 .childHandler(new ChannelInitializer<SocketChannel>() {
                     @Override
                     public void initChannel(SocketChannel ch)
                             throws IOException {
 
-                        ch.pipeline().addLast(new NettyDecoder(codec, url, maxContentLength, Constants.HEADER_SIZE, 4), //
-                                new NettyEncoder(codec, url), //
+                        ch.pipeline().addLast(new NettyDecoder(codec, serializer, maxContentLength, Constants.HEADER_SIZE, 4), //
+                                new NettyEncoder(codec, serializer), //
                                 new NettyServerHandler());
                     }
                 });
 
+        if (transportType.isEpoll()) {
+            this.serverBootstrap.option(EpollChannelOption.SO_REUSEPORT, acceptors > 1)
+                    .childOption(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED)
+                    .childOption(EpollChannelOption.TCP_QUICKACK, true);
+        }
+
         try {
-            ChannelFuture channelFuture = this.serverBootstrap.bind(this.localAddress).sync();
+            for (int i = 0; i < acceptors; i++) {
+                ChannelFuture channelFuture = this.serverBootstrap.bind(this.localAddress).sync();
 
-            channelFuture.addListener(new ChannelFutureListener() {
-                @Override
-                public void operationComplete(ChannelFuture f) throws Exception {
+                channelFuture.addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture f) throws Exception {
 
-                    if(f.isSuccess()){
-                        log.info("Rpc Server bind port:{} success", url.getPort());
-                    } else {
-                        log.error("Rpc Server bind port:{} failure", url.getPort());
+                        if(f.isSuccess()){
+                            log.info("Rpc Server bind port:{} success, transport:{}", url.getPort(), transportType.value);
+                        } else {
+                            log.error("Rpc Server bind port:{} failure", url.getPort());
+                        }
                     }
-                }
-            });
+                });
+            }
         } catch (InterruptedException e) {
             log.error(String.format("NettyServer bind to address:%s failure", this.localAddress), e);
-            throw new FrameworkRpcException(String.format("NettyClient connect to address:%s failure", this.localAddress), e);
+            throw new FrameworkRpcException(String.format("NettyServer bind to address:%s failure", this.localAddress), e);
         }
         state = ChannelStateEnum.AVAILABLE;
         return true;
@@ -155,9 +191,11 @@ public class DefaultNettyServer implements NettyServer {
         }
 
         try {
-            this.bossGroup.shutdownGracefully();
-            this.workerGroup.shutdownGracefully();
-            this.threadPoolExecutor.shutdown();
+            if (this.bossGroup != null) {
+                this.bossGroup.shutdownGracefully();
+                this.workerGroup.shutdownGracefully();
+            }
+            this.executor.shutdown();
 
             state = ChannelStateEnum.CLOSED;
         } catch (Exception e) {
@@ -167,12 +205,30 @@ public class DefaultNettyServer implements NettyServer {
 
     class NettyServerHandler extends SimpleChannelInboundHandler<DefaultRequest> {
 
+        /** 响应合并写，未开启时为null **/
+        private BatchFlusher batchFlusher;
+
+        @Override
+        public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+            int writeBatchSize = url.getIntParameterByEnum(UrlParamEnum.writeBatchSize);
+            if (writeBatchSize > 1) {
+                batchFlusher = new BatchFlusher(ctx.channel(), writeBatchSize, url.getIntParameterByEnum(UrlParamEnum.writeBatchDelay));
+            }
+        }
+
         @Override
         protected void channelRead0(ChannelHandlerContext context, DefaultRequest request) throws Exception {
 
             log.info("Rpc server receive request id:{}", request.getRequestId());
             //处理请求
-            processRpcRequest(context, request);
+            processRpcRequest(context, batchFlusher, request);
+        }
+
+        /** 响应写积压超过高水位时暂停读取请求，恢复可写后继续 **/
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+            ctx.channel().config().setAutoRead(ctx.channel().isWritable());
+            super.channelWritabilityChanged(ctx);
         }
 
         @Override
@@ -184,15 +240,27 @@ public class DefaultNettyServer implements NettyServer {
     }
 
     /**处理客户端请求**/
-    private void processRpcRequest(final ChannelHandlerContext context, final DefaultRequest request) {
+    private void processRpcRequest(final ChannelHandlerContext context, final BatchFlusher batchFlusher, final DefaultRequest request) {
         final long processStartTime = System.currentTimeMillis();
+        final long receiveNanos = System.nanoTime();
+        // 超过自适应并发限制时直接拒绝，客户端可以重试其他节点
+        if (limiter != null && !limiter.tryAcquire()) {
+            rejectRpcRequest(context, batchFlusher, request, processStartTime, "server overload, concurrency limit:" + limiter.getLimit());
+            return;
+        }
+        // 配置了独立线程池的服务使用自己的线程池，与同端口其他服务隔离
+        Executor serviceExecutor = this.messageHandler.getExecutor(request);
         try {
-            this.threadPoolExecutor.execute(new Runnable() {
+            (serviceExecutor != null ? serviceExecutor : this.executor).execute(new Runnable() {
                 @Override
                 public void run() {
                     try {
-                        RpcContext.init(request);
-                        processRpcRequest(context, request, processStartTime);
+                        RpcContext rpcContext = RpcContext.init(request);
+                        if (request.getTimeout() > 0) {
+                            // 服务方法内发起的调用继承该截止时间
+                            rpcContext.setDeadline(receiveNanos + TimeUnit.MILLISECONDS.toNanos(request.getTimeout()));
+                        }
+                        processRpcRequest(context, batchFlusher, request, processStartTime, receiveNanos);
                     } finally {
                         RpcContext.destroy();
                     }
@@ -200,22 +268,91 @@ public class DefaultNettyServer implements NettyServer {
                 }
             });
         } catch (RejectedExecutionException e) {
-            DefaultResponse response = new DefaultResponse();
-            response.setRequestId(request.getRequestId());
-            response.setException(new FrameworkRpcException("process thread pool is full, reject"));
-            response.setProcessTime(System.currentTimeMillis() - processStartTime);
-            context.channel().write(response);
+            if (limiter != null) {
+                limiter.release(0);
+            }
+            rejectRpcRequest(context, batchFlusher, request, processStartTime, "process thread pool is full, reject");
         }
 
     }
 
-    private void processRpcRequest(ChannelHandlerContext context, DefaultRequest request, long processStartTime) {
+    private void processRpcRequest(ChannelHandlerContext context, BatchFlusher batchFlusher, DefaultRequest request, long processStartTime, long receiveNanos) {
+        // 排队时间已超过客户端的超时时间，客户端不再等待结果，丢弃请求且不返回响应
+        long queueNanos = System.nanoTime() - receiveNanos;
+        int timeout = getTimeout(request);
+        if (timeout > 0 && queueNanos >= TimeUnit.MILLISECONDS.toNanos(timeout)) {
+            if (limiter != null) {
+                limiter.release(queueNanos);
+            }
+            log.warn("Rpc server drop expired request:{}, waited {}ms in queue, timeout:{}ms", request.getRequestId(),
+                    TimeUnit.NANOSECONDS.toMillis(queueNanos), timeout);
+            return;
+        }
+
+        Response response;
+        try {
+            response = this.messageHandler.handle(request);
+        } catch (Throwable e) {
+            // 处理过程抛出异常时同样写回错误响应，由processRpcResponse释放并发额度
+            log.error("Rpc server process request:" + request.getRequestId() + " failure", e);
+            DefaultResponse errorResponse = new DefaultResponse();
+            errorResponse.setRequestId(request.getRequestId());
+            errorResponse.setException(new FrameworkRpcException("process request failure: " + e.getMessage(), e));
+            response = errorResponse;
+        }
+        if (response instanceof AsyncResponse) {
+            // 服务方法异步完成，业务线程直接返回，在完成回调中写回响应
+            ((AsyncResponse) response).getFuture().addListener(future ->
+                    processRpcResponse(context, batchFlusher, request, (DefaultResponse) future.getNow(), processStartTime, receiveNanos));
+            return;
+        }
+        processRpcResponse(context, batchFlusher, request, (DefaultResponse) response, processStartTime, receiveNanos);
+    }
 
-        DefaultResponse response = (DefaultResponse) this.messageHandler.handle(request);
+    private void processRpcResponse(ChannelHandlerContext context, BatchFlusher batchFlusher, DefaultRequest request, DefaultResponse response, long processStartTime, long receiveNanos) {
+        long elapsedNanos = System.nanoTime() - receiveNanos;
+        if (limiter != null) {
+            limiter.release(elapsedNanos);
+        }
         response.setProcessTime(System.currentTimeMillis() - processStartTime);
-        if(request.getType()!=Constants.REQUEST_ONEWAY){    //非单向调用
-            context.writeAndFlush(response);
+        if (request.getTimeout() > 0 && elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(request.getTimeout())) {
+            // 客户端已超时，不再序列化和写回响应
+            log.warn("Rpc server drop expired response:{}, process time:{}ms, timeout:{}ms", request.getRequestId(),
+                    response.getProcessTime(), request.getTimeout());
+        } else if(request.getType()!=Constants.REQUEST_ONEWAY){    //非单向调用
+            writeResponse(context, batchFlusher, response);
         }
         log.info("Rpc server process request:{} end...", request.getRequestId());
     }
+
+    /** 客户端未携带超时时间时，开启过载保护的情况下使用请求对应服务配置的超时时间 **/
+    private int getTimeout(DefaultRequest request) {
+        if (request.getTimeout() > 0) {
+            return request.getTimeout();
+        }
+        if (limiter == null) {
+            return 0;
+        }
+        URL providerUrl = messageHandler.getProviderUrl(request);
+        return (providerUrl != null ? providerUrl : url).getIntParameterByEnum(UrlParamEnum.requestTimeout);
+    }
+
+    private void rejectRpcRequest(ChannelHandlerContext context, BatchFlusher batchFlusher, DefaultRequest request, long processStartTime, String message) {
+        log.warn("Rpc server reject request:{}, {}", request.getRequestId(), message);
+        if(request.getType()!=Constants.REQUEST_ONEWAY){
+            DefaultResponse response = new DefaultResponse();
+            response.setRequestId(request.getRequestId());
+            response.setException(new OverloadRpcException(message));
+            response.setProcessTime(System.currentTimeMillis() - processStartTime);
+            writeResponse(context, batchFlusher, response);
+        }
+    }
+
+    private void writeResponse(ChannelHandlerContext context, BatchFlusher batchFlusher, DefaultResponse response) {
+        if (batchFlusher != null) {
+            batchFlusher.write(response);
+        } else {
+            context.writeAndFlush(response);
+        }
+    }
 }
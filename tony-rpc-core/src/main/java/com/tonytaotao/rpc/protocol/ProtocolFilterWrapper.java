@@ -3,10 +3,12 @@ package com.tonytaotao.rpc.protocol;
 import com.tonytaotao.rpc.common.URL;
 import com.tonytaotao.rpc.core.request.Request;
 import com.tonytaotao.rpc.core.response.Response;
+import com.tonytaotao.rpc.core.response.future.ResponseFuture;
 import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
 import com.tonytaotao.rpc.filter.Filter;
 import com.tonytaotao.rpc.core.exporter.Exporter;
 import com.tonytaotao.rpc.core.reference.Reference;
+import com.tonytaotao.rpc.core.reference.ReferenceStats;
 import com.tonytaotao.rpc.core.provider.Provider;
 import com.tonytaotao.rpc.common.Constants;
 
@@ -65,7 +67,17 @@ public class ProtocolFilterWrapper implements Protocol {
 
                 @Override
                 public Response call(Request request) {
-                    return null;
+                    return f.filter(lr, request);
+                }
+
+                @Override
+                public ResponseFuture<Response> callAsync(Request request) {
+                    return f.filterAsync(lr, request);
+                }
+
+                @Override
+                public ReferenceStats getStats() {
+                    return lr.getStats();
                 }
 
                 @Override
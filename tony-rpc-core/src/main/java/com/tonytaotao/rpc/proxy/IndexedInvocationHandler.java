@@ -0,0 +1,12 @@
+package com.tonytaotao.rpc.proxy;
+
+import java.lang.reflect.InvocationHandler;
+
+/**
+ * 按方法下标分发的InvocationHandler，供生成的代理类直接调用，省去按Method查找方法元数据。
+ * 下标即方法在 ReflectUtils.getMethodsSortedBySignature(接口) 中的位置
+ */
+public interface IndexedInvocationHandler extends InvocationHandler {
+
+    Object invoke(int methodIndex, Object[] args) throws Throwable;
+}
@@ -4,29 +4,53 @@ import com.tonytaotao.rpc.cluster.Cluster;
 import com.tonytaotao.rpc.common.UrlParamEnum;
 import com.tonytaotao.rpc.core.request.DefaultRequest;
 import com.tonytaotao.rpc.core.response.Response;
+import com.tonytaotao.rpc.core.response.future.ResponseFuture;
 import com.tonytaotao.rpc.common.exception.BusinessRpcException;
 import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
 import com.tonytaotao.rpc.common.exception.ServiceRpcException;
 import com.tonytaotao.rpc.common.Constants;
 import com.tonytaotao.rpc.common.util.IdGeneratorUtils;
+import com.tonytaotao.rpc.common.util.ReflectUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
-public class ReferenceInvocationHandler<T> implements InvocationHandler {
+public class ReferenceInvocationHandler<T> implements IndexedInvocationHandler {
     private static final Logger logger = LoggerFactory.getLogger(ReferenceInvocationHandler.class);
 
     private List<Cluster<T>> clusters;
     private Class<T> clazz;
 
+    /** 按方法下标预先计算的方法元数据 **/
+    private final MethodMeta[] methodMetas;
+    private final Map<Method, MethodMeta> methodMetaMap = new HashMap<>();
+    /** 每个cluster的version、group，所有请求共享(DefaultRequest写入前复制)，不能包装为不可变map，否则kryo反序列化时无法put **/
+    private final Map<String, String>[] clusterAttachments;
+
+    @SuppressWarnings("unchecked")
     public ReferenceInvocationHandler(Class<T> clazz, List<Cluster<T>> clusters) {
         this.clazz = clazz;
         this.clusters = clusters;
+
+        Method[] methods = ReflectUtils.getMethodsSortedBySignature(clazz);
+        this.methodMetas = new MethodMeta[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            methodMetas[i] = new MethodMeta(methods[i]);
+            methodMetaMap.put(methods[i], methodMetas[i]);
+        }
+
+        this.clusterAttachments = (Map<String, String>[]) new Map<?, ?>[clusters.size()];
+        for (int i = 0; i < clusters.size(); i++) {
+            Map<String, String> attachments = new HashMap<>(4);
+            attachments.put(UrlParamEnum.version.getName(), clusters.get(i).getUrl().getVersion());
+            attachments.put(UrlParamEnum.group.getName(), clusters.get(i).getUrl().getGroup());
+            clusterAttachments[i] = attachments;
+        }
     }
 
     @Override
@@ -39,38 +63,45 @@ public class ReferenceInvocationHandler<T> implements InvocationHandler {
             throw new FrameworkRpcException("can not invoke local method:" + method.getName());
         }
 
+        MethodMeta methodMeta = methodMetaMap.get(method);
+        if (methodMeta == null) {
+            methodMeta = new MethodMeta(method);
+        }
+        return invoke(methodMeta, args);
+    }
+
+    @Override
+    public Object invoke(int methodIndex, Object[] args) throws Throwable {
+        return invoke(methodMetas[methodIndex], args);
+    }
+
+    private Object invoke(MethodMeta methodMeta, Object[] args) throws Throwable {
         DefaultRequest request = new DefaultRequest();
         request.setRequestId(IdGeneratorUtils.getRequestId());
-        request.setInterfaceName(method.getDeclaringClass().getName());
-        request.setMethodName(method.getName());
-        request.setParameterTypes(method.getParameterTypes());
+        request.setInterfaceName(methodMeta.interfaceName);
+        request.setMethodName(methodMeta.methodName);
+        request.setParameterTypes(methodMeta.parameterTypes);
         request.setArguments(args);
-        request.setType(Constants.REQUEST_SYNC);
-
 
-        boolean throwException = checkMethodExceptionSignature(method);
+        if (methodMeta.async) {
+            request.setType(Constants.REQUEST_ASYNC);
+            return invokeAsync(request);
+        }
+        request.setType(Constants.REQUEST_SYNC);
 
-        for (Cluster<T> cluster : clusters) {
+        for (int i = 0; i < clusters.size(); i++) {
+            Cluster<T> cluster = clusters.get(i);
             //调用参数
-            request.setAttachment(UrlParamEnum.version.getName(), cluster.getUrl().getVersion());
-            request.setAttachment(UrlParamEnum.group.getName(), cluster.getUrl().getGroup());
+            request.setSharedAttachments(clusterAttachments[i]);
             try {
                 Response resp = cluster.call(request);
                 return getValue(resp);
             } catch (RuntimeException e) {
                 if (e instanceof BusinessRpcException) {
-                    Throwable t = e.getCause();
-                    if (t != null && t instanceof Exception) {
-                        throw t;
-                    } else {
-                        String msg =
-                                t == null ? "biz exception cause is null" : ("biz exception cause is throwable error:" + t.getClass()
-                                        + ", errmsg:" + t.getMessage());
-                        throw new ServiceRpcException(msg);
-                    }
-                } else if (!throwException) {
+                    throw getBusinessCause(e);
+                } else if (!methodMeta.throwException) {
                     logger.warn(this.getClass().getSimpleName()+" invoke false, so return default value: uri=" + cluster.getUrl().getUri(), e);
-                    return getDefaultReturnValue(method.getReturnType());
+                    return methodMeta.defaultReturnValue;
                 } else {
                     logger.error(this.getClass().getSimpleName()+" invoke Error: uri=" + cluster.getUrl().getUri(), e);
                     throw e;
@@ -80,7 +111,53 @@ public class ReferenceInvocationHandler<T> implements InvocationHandler {
         throw new ServiceRpcException("Reference call Error: cluster not exist, interface=" + clazz.getName());
     }
 
-    private boolean checkMethodExceptionSignature(Method method) {
+    /**
+     * 返回值为CompletableFuture的方法：通过cluster异步调用，结果在响应回调中完成，不占用调用线程
+     */
+    private CompletableFuture<Object> invokeAsync(DefaultRequest request) {
+        if (clusters.isEmpty()) {
+            throw new ServiceRpcException("Reference call Error: cluster not exist, interface=" + clazz.getName());
+        }
+        final Cluster<T> cluster = clusters.get(0);
+        request.setSharedAttachments(clusterAttachments[0]);
+
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        ResponseFuture<Response> future;
+        try {
+            future = cluster.callAsync(request);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        future.addListener(f -> {
+            try {
+                if (!f.isSuccess()) {
+                    throw f.cause();
+                }
+                result.complete(getValue(f.getNow()));
+            } catch (BusinessRpcException e) {
+                result.completeExceptionally(getBusinessCause(e));
+            } catch (Throwable e) {
+                logger.error(this.getClass().getSimpleName()+" invokeAsync Error: uri=" + cluster.getUrl().getUri(), e);
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /** 业务异常还原为服务端抛出的原始异常 **/
+    private static Throwable getBusinessCause(RuntimeException e) {
+        Throwable t = e.getCause();
+        if (t != null && t instanceof Exception) {
+            return t;
+        }
+        String msg =
+                t == null ? "biz exception cause is null" : ("biz exception cause is throwable error:" + t.getClass()
+                        + ", errmsg:" + t.getMessage());
+        return new ServiceRpcException(msg);
+    }
+
+    private static boolean checkMethodExceptionSignature(Method method) {
         Class<?>[] exps = method.getExceptionTypes();
         return exps!=null && exps.length>0;
     }
@@ -95,13 +172,32 @@ public class ReferenceInvocationHandler<T> implements InvocationHandler {
     }
 
 
-    private Object getDefaultReturnValue(Class<?> returnType) {
+    private static Object getDefaultReturnValue(Class<?> returnType) {
         if (returnType != null && returnType.isPrimitive()) {
             return PrimitiveDefault.getDefaultReturnValue(returnType);
         }
         return null;
     }
 
+    private static class MethodMeta {
+        private final String interfaceName;
+        private final String methodName;
+        private final Class<?>[] parameterTypes;
+        private final boolean throwException;
+        private final Object defaultReturnValue;
+        /** 返回CompletableFuture，走异步调用 **/
+        private final boolean async;
+
+        MethodMeta(Method method) {
+            this.interfaceName = method.getDeclaringClass().getName();
+            this.methodName = method.getName();
+            this.parameterTypes = method.getParameterTypes();
+            this.throwException = checkMethodExceptionSignature(method);
+            this.defaultReturnValue = getDefaultReturnValue(method.getReturnType());
+            this.async = CompletableFuture.class.equals(method.getReturnType());
+        }
+    }
+
     private static class PrimitiveDefault {
         private static boolean defaultBoolean;
         private static char defaultChar;
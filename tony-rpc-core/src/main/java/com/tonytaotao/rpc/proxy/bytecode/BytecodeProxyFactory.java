@@ -0,0 +1,219 @@
+package com.tonytaotao.rpc.proxy.bytecode;
+
+import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
+import com.tonytaotao.rpc.common.util.ReflectUtils;
+import com.tonytaotao.rpc.proxy.IndexedInvocationHandler;
+import com.tonytaotao.rpc.proxy.ProxyFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+import javax.annotation.Resource;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 为每个接口生成一个实现类，方法体直接调用 IndexedInvocationHandler.invoke(方法下标, 参数)，
+ * 不经过Method对象与反射。非public接口或handler不支持下标分发时退回jdk动态代理
+ */
+public class BytecodeProxyFactory implements ProxyFactory, Opcodes {
+
+    private static final Logger logger = LoggerFactory.getLogger(BytecodeProxyFactory.class);
+
+    private static final String HANDLER_FIELD = "handler";
+    private static final String HANDLER_INTERNAL_NAME = Type.getInternalName(IndexedInvocationHandler.class);
+    private static final String HANDLER_DESCRIPTOR = Type.getDescriptor(IndexedInvocationHandler.class);
+
+    private static final AtomicInteger PROXY_COUNTER = new AtomicInteger();
+
+    /** 接口 -> 生成类的构造器 **/
+    private static final ConcurrentHashMap<Class<?>, Constructor<?>> PROXY_CONSTRUCTORS = new ConcurrentHashMap<>();
+
+    @Resource(name = "jdk")
+    private ProxyFactory fallback;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getProxy(Class<T> clz, InvocationHandler invocationHandler) {
+        if (!(invocationHandler instanceof IndexedInvocationHandler) || !Modifier.isPublic(clz.getModifiers())) {
+            return fallback.getProxy(clz, invocationHandler);
+        }
+
+        Constructor<?> constructor;
+        try {
+            constructor = PROXY_CONSTRUCTORS.computeIfAbsent(clz, BytecodeProxyFactory::generate);
+        } catch (RuntimeException | LinkageError e) {
+            logger.warn("generate bytecode proxy failure, fallback to jdk proxy, interface:" + clz.getName(), e);
+            return fallback.getProxy(clz, invocationHandler);
+        }
+
+        try {
+            return (T) constructor.newInstance(invocationHandler);
+        } catch (Exception e) {
+            throw new FrameworkRpcException("create bytecode proxy failure, interface:" + clz.getName(), e);
+        }
+    }
+
+    private static Constructor<?> generate(Class<?> clz) {
+        String className = clz.getName() + "$TonyRpcProxy" + PROXY_COUNTER.incrementAndGet();
+        byte[] bytes = generateClass(clz, className.replace('.', '/'));
+
+        ProxyClassLoader classLoader = new ProxyClassLoader(clz.getClassLoader());
+        try {
+            return classLoader.define(className, bytes).getConstructor(IndexedInvocationHandler.class);
+        } catch (NoSuchMethodException e) {
+            throw new FrameworkRpcException(e);
+        }
+    }
+
+    private static byte[] generateClass(Class<?> clz, String internalName) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, internalName, null, "java/lang/Object",
+                new String[]{Type.getInternalName(clz)});
+
+        cw.visitField(ACC_PRIVATE | ACC_FINAL, HANDLER_FIELD, HANDLER_DESCRIPTOR, null, null).visitEnd();
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "(" + HANDLER_DESCRIPTOR + ")V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitFieldInsn(PUTFIELD, internalName, HANDLER_FIELD, HANDLER_DESCRIPTOR);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // 同名同参数但返回值不同的方法(泛型接口继承)在字节码层面是不同方法，按描述符去重
+        Set<String> generated = new HashSet<>();
+        Method[] methods = ReflectUtils.getMethodsSortedBySignature(clz);
+        for (int i = 0; i < methods.length; i++) {
+            String descriptor = Type.getMethodDescriptor(methods[i]);
+            if (generated.add(methods[i].getName() + descriptor)) {
+                generateMethod(cw, internalName, methods[i], descriptor, i);
+            }
+        }
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * return (R) handler.invoke(index, new Object[]{arg0, arg1, ...});
+     */
+    private static void generateMethod(ClassWriter cw, String internalName, Method method, String descriptor, int index) {
+        Class<?>[] exceptionTypes = method.getExceptionTypes();
+        String[] exceptions = new String[exceptionTypes.length];
+        for (int i = 0; i < exceptionTypes.length; i++) {
+            exceptions[i] = Type.getInternalName(exceptionTypes[i]);
+        }
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, method.getName(), descriptor, null, exceptions);
+        mv.visitCode();
+
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, internalName, HANDLER_FIELD, HANDLER_DESCRIPTOR);
+        pushInt(mv, index);
+
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        pushInt(mv, parameterTypes.length);
+        mv.visitTypeInsn(ANEWARRAY, "java/lang/Object");
+        int slot = 1;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            Type type = Type.getType(parameterTypes[i]);
+            mv.visitInsn(DUP);
+            pushInt(mv, i);
+            mv.visitVarInsn(type.getOpcode(ILOAD), slot);
+            box(mv, type);
+            mv.visitInsn(AASTORE);
+            slot += type.getSize();
+        }
+
+        mv.visitMethodInsn(INVOKEINTERFACE, HANDLER_INTERNAL_NAME, "invoke", "(I[Ljava/lang/Object;)Ljava/lang/Object;", true);
+
+        Type returnType = Type.getReturnType(method);
+        if (returnType.getSort() == Type.VOID) {
+            mv.visitInsn(POP);
+            mv.visitInsn(RETURN);
+        } else {
+            unbox(mv, returnType);
+            mv.visitInsn(returnType.getOpcode(IRETURN));
+        }
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    private static void box(MethodVisitor mv, Type type) {
+        Type boxed = boxedType(type);
+        if (boxed != null) {
+            mv.visitMethodInsn(INVOKESTATIC, boxed.getInternalName(), "valueOf",
+                    Type.getMethodDescriptor(boxed, type), false);
+        }
+    }
+
+    private static void unbox(MethodVisitor mv, Type type) {
+        Type boxed = boxedType(type);
+        if (boxed == null) {
+            mv.visitTypeInsn(CHECKCAST, type.getSort() == Type.ARRAY ? type.getDescriptor() : type.getInternalName());
+        } else {
+            mv.visitTypeInsn(CHECKCAST, boxed.getInternalName());
+            mv.visitMethodInsn(INVOKEVIRTUAL, boxed.getInternalName(), type.getClassName() + "Value",
+                    Type.getMethodDescriptor(type), false);
+        }
+    }
+
+    private static Type boxedType(Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN:
+                return Type.getType(Boolean.class);
+            case Type.CHAR:
+                return Type.getType(Character.class);
+            case Type.BYTE:
+                return Type.getType(Byte.class);
+            case Type.SHORT:
+                return Type.getType(Short.class);
+            case Type.INT:
+                return Type.getType(Integer.class);
+            case Type.FLOAT:
+                return Type.getType(Float.class);
+            case Type.LONG:
+                return Type.getType(Long.class);
+            case Type.DOUBLE:
+                return Type.getType(Double.class);
+            default:
+                return null;
+        }
+    }
+
+    private static class ProxyClassLoader extends ClassLoader {
+
+        ProxyClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
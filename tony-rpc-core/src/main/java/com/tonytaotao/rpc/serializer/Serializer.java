@@ -3,13 +3,38 @@ package com.tonytaotao.rpc.serializer;
 
 import com.tonytaotao.rpc.core.extension.SPI;
 import com.tonytaotao.rpc.core.extension.Scope;
+import io.netty.buffer.ByteBuf;
 
 import java.io.IOException;
 
 @SPI(value = "protostuff", scope = Scope.SINGLETON)
 public interface Serializer {
 
+    /**
+     * 序列化方式的唯一标识，写入协议头，用于对端选择反序列化方式
+     * @return
+     */
+    byte getId();
+
     byte[] serialize(Object msg) throws IOException;
 
+    /**
+     * 直接序列化到ByteBuf，避免中间byte[]的分配与拷贝
+     * @param msg
+     * @param out
+     * @throws IOException
+     */
+    void serialize(Object msg, ByteBuf out) throws IOException;
+
     <T> T deserialize(byte[] data, Class<T> type) throws IOException;
+
+    /**
+     * 直接从ByteBuf的可读区域反序列化，不拷贝出byte[]
+     * @param in
+     * @param type
+     * @param <T>
+     * @return
+     * @throws IOException
+     */
+    <T> T deserialize(ByteBuf in, Class<T> type) throws IOException;
 }
@@ -0,0 +1,51 @@
+package com.tonytaotao.rpc.serializer;
+
+import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
+import com.tonytaotao.rpc.core.extension.ExtensionLoader;
+
+public class SerializerUtils {
+
+    private static volatile Serializer[] serializers;
+
+    /**
+     * 根据协议头中的序列化标识获取序列化实现
+     * @param id
+     * @return
+     */
+    public static Serializer getSerializer(byte id) {
+        Serializer serializer = getSerializers()[id & 0xFF];
+        if (serializer == null) {
+            throw new FrameworkRpcException("Serializer not exist, id: " + id);
+        }
+        return serializer;
+    }
+
+    private static Serializer[] getSerializers() {
+        Serializer[] result = serializers;
+        if (result == null) {
+            synchronized (SerializerUtils.class) {
+                result = serializers;
+                if (result == null) {
+                    result = loadSerializers();
+                    serializers = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Serializer[] loadSerializers() {
+        ExtensionLoader<Serializer> loader = ExtensionLoader.getExtensionLoader(Serializer.class);
+        Serializer[] result = new Serializer[256];
+        for (String name : loader.getSupportedExtensions()) {
+            Serializer serializer = loader.getExtension(name);
+            int index = serializer.getId() & 0xFF;
+            if (result[index] != null && result[index] != serializer) {
+                throw new FrameworkRpcException("Duplicate serializer id " + serializer.getId() + " on "
+                        + result[index].getClass().getName() + " and " + serializer.getClass().getName());
+            }
+            result[index] = serializer;
+        }
+        return result;
+    }
+}
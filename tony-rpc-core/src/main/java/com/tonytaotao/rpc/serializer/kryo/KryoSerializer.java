@@ -4,14 +4,23 @@ import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.tonytaotao.rpc.serializer.Serializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import org.objenesis.strategy.StdInstantiatorStrategy;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 public class KryoSerializer implements Serializer {
 
+    public static final byte SERIALIZER_ID = 2;
+
+    private static final int OUTPUT_BUFFER_SIZE = 4096;
+    private static final int INPUT_BUFFER_SIZE = 4096;
+    /** 线程保留的Output缓冲区上限，序列化大消息扩容后丢弃，避免每个线程长期占用大块内存 **/
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
     private static final ThreadLocal<Kryo> THREAD_LOCAL = new ThreadLocal<Kryo>(){
         @Override
         protected Kryo initialValue() {
@@ -22,14 +31,52 @@ public class KryoSerializer implements Serializer {
         }
     };
 
+    /** 线程复用的Output/Input，通过流与ByteBuf交换数据，不再每次分配缓冲区 **/
+    private static final ThreadLocal<Output> OUTPUT_LOCAL = new ThreadLocal<Output>(){
+        @Override
+        protected Output initialValue() {
+            return new Output(OUTPUT_BUFFER_SIZE, -1);
+        }
+    };
+
+    private static final ThreadLocal<Input> INPUT_LOCAL = new ThreadLocal<Input>(){
+        @Override
+        protected Input initialValue() {
+            return new Input(INPUT_BUFFER_SIZE);
+        }
+    };
+
+    @Override
+    public byte getId() {
+        return SERIALIZER_ID;
+    }
+
     @Override
     public byte[] serialize(Object msg) throws IOException {
-        try(ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            Output output = new Output(bos)){
+        Output output = OUTPUT_LOCAL.get();
+        output.clear();
 
+        try {
             Kryo kryo = THREAD_LOCAL.get();
             kryo.writeObject(output, msg);
             return output.toBytes();
+        } finally {
+            if (output.getBuffer().length > MAX_RETAINED_BUFFER_SIZE) {
+                OUTPUT_LOCAL.remove();
+            }
+        }
+    }
+
+    @Override
+    public void serialize(Object msg, ByteBuf out) throws IOException {
+        Output output = OUTPUT_LOCAL.get();
+        output.setOutputStream(new ByteBufOutputStream(out));
+        try {
+            Kryo kryo = THREAD_LOCAL.get();
+            kryo.writeObject(output, msg);
+            output.flush();
+        } finally {
+            output.setOutputStream(null);
         }
     }
 
@@ -43,4 +90,16 @@ public class KryoSerializer implements Serializer {
             return kryo.readObject(input, type);
         }
     }
+
+    @Override
+    public <T> T deserialize(ByteBuf in, Class<T> type) throws IOException {
+        Input input = INPUT_LOCAL.get();
+        input.setInputStream(new ByteBufInputStream(in));
+        try {
+            Kryo kryo = THREAD_LOCAL.get();
+            return kryo.readObject(input, type);
+        } finally {
+            input.setInputStream(null);
+        }
+    }
 }
@@ -4,6 +4,8 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.tonytaotao.rpc.serializer.Serializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
 import io.protostuff.LinkedBuffer;
 import io.protostuff.ProtostuffIOUtil;
 import io.protostuff.Schema;
@@ -14,6 +16,8 @@ import java.util.concurrent.ExecutionException;
 
 public class ProtostuffSerializer implements Serializer {
 
+    public static final byte SERIALIZER_ID = 1;
+
     private static final LoadingCache<Class<?>, Schema<?>> schemas = CacheBuilder.newBuilder()
             .build(new CacheLoader<Class<?>, Schema<?>>() {
                 @Override
@@ -23,11 +27,33 @@ public class ProtostuffSerializer implements Serializer {
                 }
             });
 
+    /** 线程复用的LinkedBuffer，避免每次序列化都分配 **/
+    private static final ThreadLocal<LinkedBuffer> BUFFER_LOCAL = new ThreadLocal<LinkedBuffer>() {
+        @Override
+        protected LinkedBuffer initialValue() {
+            return LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE);
+        }
+    };
+
+    /** 解码用的线程复用数组的上限，更大的消息单独分配，避免线程长期持有大数组 **/
+    private static final int MAX_DECODE_BUFFER_SIZE = 64 * 1024;
+    private static final ThreadLocal<byte[]> DECODE_BUFFER_LOCAL = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[1024];
+        }
+    };
+
+    @Override
+    public byte getId() {
+        return SERIALIZER_ID;
+    }
+
     @Override
     public byte[] serialize(Object msg) throws IOException {
-        LinkedBuffer buffer = LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE);
+        LinkedBuffer buffer = BUFFER_LOCAL.get();
         try {
-            Schema schema = getSchema(msg.getClass());
+            Schema<Object> schema = getSchema(msg.getClass());
             byte[] arr = ProtostuffIOUtil.toByteArray(msg, schema, buffer);
             return arr;
         } finally {
@@ -35,17 +61,56 @@ public class ProtostuffSerializer implements Serializer {
         }
     }
 
+    @Override
+    public void serialize(Object msg, ByteBuf out) throws IOException {
+        LinkedBuffer buffer = BUFFER_LOCAL.get();
+        try {
+            Schema<Object> schema = getSchema(msg.getClass());
+            ProtostuffIOUtil.writeTo(new ByteBufOutputStream(out), msg, schema, buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
     @Override
     public <T> T deserialize(byte[] buf, Class<T> type) throws IOException {
         Schema<T> schema = getSchema(type);
         T msg = schema.newMessage();
         ProtostuffIOUtil.mergeFrom(buf, msg, schema);
-        return (T) msg;
+        return msg;
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuf in, Class<T> type) throws IOException {
+        Schema<T> schema = getSchema(type);
+        T msg = schema.newMessage();
+        if (in.hasArray()) {
+            // 堆内存直接在底层数组上解析
+            ProtostuffIOUtil.mergeFrom(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes(), msg, schema);
+        } else {
+            // 直接内存一次拷贝到线程复用的数组再解析，比经InputStream逐段读取快，解析出的字段不引用该数组
+            int length = in.readableBytes();
+            byte[] data = length <= MAX_DECODE_BUFFER_SIZE ? getDecodeBuffer(length) : new byte[length];
+            in.getBytes(in.readerIndex(), data, 0, length);
+            ProtostuffIOUtil.mergeFrom(data, 0, length, msg, schema);
+        }
+        return msg;
+    }
+
+    private static byte[] getDecodeBuffer(int length) {
+        byte[] buffer = DECODE_BUFFER_LOCAL.get();
+        if (buffer.length < length) {
+            buffer = new byte[Math.min(MAX_DECODE_BUFFER_SIZE, Math.max(length, buffer.length * 2))];
+            DECODE_BUFFER_LOCAL.set(buffer);
+        }
+        return buffer;
     }
 
-    private static Schema getSchema(Class<?> cls) throws IOException {
+    /** 缓存中的schema与class一一对应，由调用方决定schema的类型参数 **/
+    @SuppressWarnings("unchecked")
+    private static <T> Schema<T> getSchema(Class<?> cls) throws IOException {
         try {
-            return schemas.get(cls);
+            return (Schema<T>) schemas.get(cls);
         } catch (ExecutionException e) {
             throw new IOException("create protostuff schema error", e);
         }
@@ -7,10 +7,13 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.RuntimeBeanReference;
 import org.springframework.beans.factory.support.ManagedList;
+import org.springframework.beans.factory.support.ManagedMap;
 import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.beans.factory.xml.BeanDefinitionParser;
 import org.springframework.beans.factory.xml.ParserContext;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
 
 /**
  * @author tony
@@ -93,6 +96,7 @@ public class XmlBeanDefinitionParser implements BeanDefinitionParser {
             parseCommonProperty("payload", null, element, bd, parserContext);
             parseCommonProperty("heartbeat", null, element, bd, parserContext);
             parseCommonProperty("default", "isDefault", element, bd, parserContext);
+            parseParameters(element, bd);
 
         } else if (RegistryConfig.class.equals(beanClass)) {
             XmlNamespaceHandler.registryDefineNames.add(id);
@@ -142,6 +146,12 @@ public class XmlBeanDefinitionParser implements BeanDefinitionParser {
 
             parseCommonProperty("group", null, element, bd, parserContext);
             parseCommonProperty("version", null, element, bd, parserContext);
+
+            parseCommonProperty("threads", null, element, bd, parserContext);
+            parseCommonProperty("queues", null, element, bd, parserContext);
+
+            parseCommonProperty("weight", null, element, bd, parserContext);
+            parseCommonProperty("warmup", null, element, bd, parserContext);
         }
         return bd;
     }
@@ -155,6 +165,25 @@ public class XmlBeanDefinitionParser implements BeanDefinitionParser {
         }
     }
 
+    /** 解析<tonyrpc:parameter key="" value=""/>子元素 **/
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static void parseParameters(Element element, BeanDefinition bd) {
+        NodeList nodes = element.getChildNodes();
+        ManagedMap parameters = null;
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Node node = nodes.item(i);
+            if (node instanceof Element && "parameter".equals(node.getLocalName())) {
+                if (parameters == null) {
+                    parameters = new ManagedMap();
+                }
+                parameters.put(((Element) node).getAttribute("key"), ((Element) node).getAttribute("value"));
+            }
+        }
+        if (parameters != null) {
+            bd.getPropertyValues().addPropertyValue("parameters", parameters);
+        }
+    }
+
     private static void parseSingleRef(String property, Element element, BeanDefinition bd, ParserContext parserContext) {
 
         String value = element.getAttribute(property);
@@ -0,0 +1,71 @@
+package com.tonytaotao.rpc;
+
+import com.tonytaotao.rpc.common.Constants;
+import com.tonytaotao.rpc.common.URL;
+import com.tonytaotao.rpc.common.UrlParamEnum;
+import com.tonytaotao.rpc.core.message.DefaultMessageHandler;
+import com.tonytaotao.rpc.core.provider.DefaultRpcProvider;
+import com.tonytaotao.rpc.core.request.DefaultRequest;
+import com.tonytaotao.rpc.netty.server.DefaultNettyServer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 测试用的服务与请求：Sleeper按参数休眠后返回，用来构造慢请求和超时
+ */
+public final class RpcTestSupport {
+
+    private static final AtomicLong REQUEST_ID = new AtomicLong();
+
+    public interface Sleeper {
+        String sleep(Integer millis);
+    }
+
+    public static class SleeperImpl implements Sleeper {
+        @Override
+        public String sleep(Integer millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "slept:" + millis;
+        }
+    }
+
+    private RpcTestSupport() {
+    }
+
+    /**
+     * @param parameters 形如"timeout", "300"的键值对
+     */
+    public static URL newUrl(String... parameters) {
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i + 1 < parameters.length; i += 2) {
+            map.put(parameters[i], parameters[i + 1]);
+        }
+        return new URL(Constants.FRAMEWORK_NAME, "127.0.0.1", ThreadLocalRandom.current().nextInt(20000, 30000), Sleeper.class.getName(), map);
+    }
+
+    public static DefaultNettyServer openServer(URL url) {
+        DefaultNettyServer server = new DefaultNettyServer(url, new DefaultMessageHandler(new DefaultRpcProvider<Sleeper>(new SleeperImpl(), url, Sleeper.class)));
+        server.open();
+        return server;
+    }
+
+    public static DefaultRequest newSleepRequest(int millis) {
+        DefaultRequest request = new DefaultRequest();
+        request.setRequestId(REQUEST_ID.incrementAndGet());
+        request.setInterfaceName(Sleeper.class.getName());
+        request.setMethodName("sleep");
+        request.setParameterTypes(new Class<?>[]{Integer.class});
+        request.setArguments(new Object[]{millis});
+        request.setType(Constants.REQUEST_SYNC);
+        request.setAttachment(UrlParamEnum.version.getName(), UrlParamEnum.version.getDefaultValue());
+        request.setAttachment(UrlParamEnum.group.getName(), UrlParamEnum.group.getDefaultValue());
+        return request;
+    }
+}
@@ -0,0 +1,61 @@
+package com.tonytaotao.rpc.benchmark;
+
+import com.tonytaotao.rpc.RpcTestSupport;
+import com.tonytaotao.rpc.codec.DefaultCodec;
+import com.tonytaotao.rpc.common.Constants;
+import com.tonytaotao.rpc.core.request.DefaultRequest;
+import com.tonytaotao.rpc.serializer.Serializer;
+import com.tonytaotao.rpc.serializer.kryo.KryoSerializer;
+import com.tonytaotao.rpc.serializer.protostuff.ProtostuffSerializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+
+/**
+ * 消息体解码的耗时：copy为旧实现，先拷贝到byte[]再反序列化；slice为当前实现，在帧数据的切片上直接反序列化。
+ * 帧数据放在池化的直接内存中，与从socket读到的数据一致。
+ * 不是单元测试(不以Test结尾，surefire不会执行)，test-compile后以test classpath手动运行main方法
+ */
+public class DecodeBenchmark {
+
+    private static final int ITERATIONS = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        for (Serializer serializer : new Serializer[]{new ProtostuffSerializer(), new KryoSerializer()}) {
+            DefaultRequest request = RpcTestSupport.newSleepRequest(1);
+            request.setArguments(new Object[]{new String(new char[512]).replace('\0', 'x')});
+            request.setParameterTypes(new Class<?>[]{String.class});
+
+            ByteBuf body = PooledByteBufAllocator.DEFAULT.directBuffer();
+            serializer.serialize(request, body);
+            DefaultCodec codec = new DefaultCodec();
+
+            for (int round = 0; round < 5; round++) {
+                long sink = 0;
+                long start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    ByteBuf in = body.duplicate();
+                    byte[] data = new byte[in.readableBytes()];
+                    in.readBytes(data);
+                    sink += serializer.deserialize(data, DefaultRequest.class).getRequestId();
+                }
+                long copy = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    ByteBuf in = body.duplicate();
+                    ByteBuf data = in.readRetainedSlice(in.readableBytes());
+                    try {
+                        sink += ((DefaultRequest) codec.decode(serializer, Constants.FLAG_REQUEST, data)).getRequestId();
+                    } finally {
+                        data.release();
+                    }
+                }
+                long slice = System.nanoTime() - start;
+
+                System.out.printf("%s round %d: copy %.0f ns/op, slice %.0f ns/op, body %d bytes (%d)%n", serializer.getClass().getSimpleName(),
+                        round, (double) copy / ITERATIONS, (double) slice / ITERATIONS, body.readableBytes(), sink);
+            }
+            body.release();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.tonytaotao.rpc.benchmark;
+
+import com.tonytaotao.rpc.core.provider.ProviderInvoker;
+import com.tonytaotao.rpc.core.provider.ProviderInvokerTest.Calculator;
+import com.tonytaotao.rpc.core.provider.ProviderInvokerTest.CalculatorImpl;
+
+/**
+ * 服务端方法查找与调用的耗时：getMethodIndex(重载方法按参数类型匹配)与MethodHandle调用。
+ * 不是单元测试(不以Test结尾，surefire不会执行)，test-compile后以test classpath手动运行main方法
+ */
+public class ProviderInvokerBenchmark {
+
+    private static final int ITERATIONS = 10_000_000;
+
+    public static void main(String[] args) throws Throwable {
+        ProviderInvoker<Calculator> invoker = new ProviderInvoker<>(Calculator.class, new CalculatorImpl());
+        Class<?>[] parameterTypes = {long.class, long.class};
+        Object[] arguments = {1L, 2L};
+
+        for (int round = 0; round < 5; round++) {
+            long sink = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink += invoker.getMethodIndex("add", parameterTypes);
+            }
+            long lookup = System.nanoTime() - start;
+
+            int index = invoker.getMethodIndex("add", parameterTypes);
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink += (Long) invoker.invoke(index, arguments);
+            }
+            long invoke = System.nanoTime() - start;
+
+            System.out.printf("round %d: getMethodIndex %.1f ns/op, invoke %.1f ns/op (%d)%n",
+                    round, (double) lookup / ITERATIONS, (double) invoke / ITERATIONS, sink);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.tonytaotao.rpc.benchmark;
+
+import com.tonytaotao.rpc.common.util.ReflectUtils;
+import com.tonytaotao.rpc.core.extension.ExtensionLoader;
+import com.tonytaotao.rpc.proxy.IndexedInvocationHandler;
+import com.tonytaotao.rpc.proxy.ProxyFactory;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 客户端代理分发的耗时：生成类按下标直接调用handler与jdk动态代理(Method查表)的对比，
+ * handler与ReferenceInvocationHandler的分发方式一致，只是不发出请求。
+ * 不是单元测试(不以Test结尾，surefire不会执行)，test-compile后以test classpath手动运行main方法
+ */
+public class ProxyBenchmark {
+
+    private static final int ITERATIONS = 10_000_000;
+
+    public interface Calculator {
+        int add(int a, int b);
+
+        String echo(String value);
+    }
+
+    static class DispatchHandler implements IndexedInvocationHandler {
+        private final Map<Method, Integer> methodIndexes = new HashMap<>();
+
+        DispatchHandler() {
+            Method[] methods = ReflectUtils.getMethodsSortedBySignature(Calculator.class);
+            for (int i = 0; i < methods.length; i++) {
+                methodIndexes.put(methods[i], i);
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            return invoke(methodIndexes.get(method), args);
+        }
+
+        @Override
+        public Object invoke(int methodIndex, Object[] args) {
+            return methodIndex == 0 ? (Integer) args[0] + (Integer) args[1] : args[0];
+        }
+    }
+
+    public static void main(String[] args) {
+        ExtensionLoader<ProxyFactory> loader = ExtensionLoader.getExtensionLoader(ProxyFactory.class);
+        Calculator bytecode = loader.getExtension("bytecode").getProxy(Calculator.class, new DispatchHandler());
+        Calculator jdk = loader.getExtension("jdk").getProxy(Calculator.class, new DispatchHandler());
+
+        for (int round = 0; round < 5; round++) {
+            System.out.printf("round %d: bytecode %.1f ns/op, jdk %.1f ns/op%n",
+                    round, measure(bytecode), measure(jdk));
+        }
+    }
+
+    private static double measure(Calculator calculator) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += calculator.add(i, 1);
+            sink += calculator.echo("tony").length();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.println(sink);
+        }
+        return (double) elapsed / (ITERATIONS * 2);
+    }
+}
@@ -0,0 +1,78 @@
+package com.tonytaotao.rpc.cluster;
+
+import com.tonytaotao.rpc.RpcTestSupport;
+import com.tonytaotao.rpc.RpcTestSupport.Sleeper;
+import com.tonytaotao.rpc.cluster.ha.FailfastHaStrategy;
+import com.tonytaotao.rpc.cluster.loadbalance.RandomLoadBalance;
+import com.tonytaotao.rpc.common.URL;
+import com.tonytaotao.rpc.common.UrlParamEnum;
+import com.tonytaotao.rpc.core.reference.Reference;
+import com.tonytaotao.rpc.core.response.Response;
+import com.tonytaotao.rpc.netty.server.DefaultNettyServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class DefaultClusterTest {
+
+    private DefaultNettyServer server;
+    private URL serviceUrl;
+    private DefaultCluster<Sleeper> cluster;
+
+    @Before
+    public void setUp() {
+        serviceUrl = RpcTestSupport.newUrl(UrlParamEnum.requestTimeout.getName(), "1000",
+                UrlParamEnum.weight.getName(), "50");
+        server = RpcTestSupport.openServer(serviceUrl);
+
+        URL refUrl = RpcTestSupport.newUrl(UrlParamEnum.requestTimeout.getName(), "100",
+                UrlParamEnum.connections.getName(), "2",
+                UrlParamEnum.weight.getName(), "10",
+                UrlParamEnum.check.getName(), "false");
+        cluster = new DefaultCluster<>(Sleeper.class, refUrl, Collections.emptyList());
+        cluster.setLoadBalance(new RandomLoadBalance<>());
+        cluster.setHaStrategy(new FailfastHaStrategy<>());
+        cluster.init();
+        cluster.notify(RpcTestSupport.newUrl(), Collections.singletonList(serviceUrl));
+    }
+
+    @After
+    public void tearDown() {
+        for (Reference<Sleeper> reference : cluster.getReferences()) {
+            reference.destroy();
+        }
+        server.close();
+    }
+
+    @Test
+    public void consumerParametersOverrideProvider() {
+        Reference<Sleeper> reference = cluster.getReferences().get(0);
+        URL url = reference.getUrl();
+
+        assertEquals(serviceUrl.getHost(), url.getHost());
+        assertEquals(serviceUrl.getPort(), url.getPort());
+        assertEquals(100, (int) url.getIntParameterByEnum(UrlParamEnum.requestTimeout));
+        assertEquals(2, (int) url.getIntParameterByEnum(UrlParamEnum.connections));
+        // 服务端决定的参数保留服务端的值
+        assertEquals(50, (int) url.getIntParameterByEnum(UrlParamEnum.weight));
+        assertEquals(serviceUrl, reference.getServiceUrl());
+    }
+
+    /** 服务端超时1000ms，客户端按consumer配置的100ms超时 **/
+    @Test
+    public void clientUsesConsumerTimeout() {
+        long start = System.nanoTime();
+        Response response = cluster.call(RpcTestSupport.newSleepRequest(500));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertNotNull(response.getException());
+        assertTrue("elapsed " + elapsed + "ms", elapsed < 400);
+    }
+}
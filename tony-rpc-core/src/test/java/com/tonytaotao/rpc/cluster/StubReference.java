@@ -0,0 +1,111 @@
+package com.tonytaotao.rpc.cluster;
+
+import com.tonytaotao.rpc.RpcTestSupport;
+import com.tonytaotao.rpc.RpcTestSupport.Sleeper;
+import com.tonytaotao.rpc.common.URL;
+import com.tonytaotao.rpc.core.reference.Reference;
+import com.tonytaotao.rpc.core.reference.ReferenceStats;
+import com.tonytaotao.rpc.core.request.Request;
+import com.tonytaotao.rpc.core.response.DefaultResponse;
+import com.tonytaotao.rpc.core.response.Response;
+import com.tonytaotao.rpc.core.response.future.DefaultResponseFuture;
+import com.tonytaotao.rpc.core.response.future.ResponseFuture;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 不经过网络的Reference：记录收到的请求，立即返回result作为结果，供负载均衡和HaStrategy的测试使用
+ */
+public class StubReference implements Reference<Sleeper> {
+
+    private final URL url;
+    private final Object result;
+    private final List<Request> requests = new CopyOnWriteArrayList<>();
+    private final ReferenceStats stats = new ReferenceStats(10000);
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private volatile boolean available = true;
+
+    public StubReference(Object result, String... parameters) {
+        this.url = RpcTestSupport.newUrl(parameters);
+        this.result = result;
+    }
+
+    public List<Request> getRequests() {
+        return requests;
+    }
+
+    public void setActiveCount(int activeCount) {
+        this.activeCount.set(activeCount);
+    }
+
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    @Override
+    public int activeCount() {
+        return activeCount.get();
+    }
+
+    @Override
+    public URL getServiceUrl() {
+        return url;
+    }
+
+    @Override
+    public ResponseFuture<Response> callAsync(Request request) {
+        ResponseFuture<Response> future = new DefaultResponseFuture<>(1000);
+        future.setResult(call(request));
+        return future;
+    }
+
+    @Override
+    public ReferenceStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public Class<Sleeper> getInterface() {
+        return Sleeper.class;
+    }
+
+    @Override
+    public Response call(Request request) {
+        requests.add(request);
+        // 与DefaultRpcReference一样修改请求
+        request.setAttachment("reference", String.valueOf(url.getPort()));
+        DefaultResponse response = new DefaultResponse();
+        response.setRequestId(request.getRequestId());
+        if (result instanceof Exception) {
+            response.setException((Exception) result);
+        } else {
+            response.setResult(result);
+        }
+        return response;
+    }
+
+    @Override
+    public void init() {
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return available;
+    }
+
+    @Override
+    public String desc() {
+        return url.toString();
+    }
+
+    @Override
+    public URL getUrl() {
+        return url;
+    }
+}
@@ -0,0 +1,67 @@
+package com.tonytaotao.rpc.cluster.ha;
+
+import com.tonytaotao.rpc.RpcTestSupport;
+import com.tonytaotao.rpc.RpcTestSupport.Sleeper;
+import com.tonytaotao.rpc.cluster.StubReference;
+import com.tonytaotao.rpc.cluster.merger.Merger;
+import com.tonytaotao.rpc.common.UrlParamEnum;
+import com.tonytaotao.rpc.core.request.DefaultRequest;
+import com.tonytaotao.rpc.core.request.Request;
+import com.tonytaotao.rpc.core.response.Response;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+public class BroadcastHaStrategyTest {
+
+    /** 测试用Merger，在src/test/resources中注册为count **/
+    public static class CountMerger implements Merger {
+        @Override
+        public Object merge(List<Object> results) {
+            return results.size();
+        }
+    }
+
+    @Test
+    public void defaultMergerConcatenatesResults() {
+        List<StubReference> stubs = new ArrayList<>();
+        stubs.add(new StubReference(Arrays.asList("a", "b")));
+        stubs.add(new StubReference(Arrays.asList("c")));
+
+        Response response = new BroadcastHaStrategy<Sleeper>().call(RpcTestSupport.newSleepRequest(0), ForkingHaStrategyTest.newLoadBalance(stubs));
+
+        assertEquals(3, ((List<?>) response.getResult()).size());
+    }
+
+    @Test
+    public void mergerReadFromConsumerUrl() {
+        List<StubReference> stubs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            stubs.add(new StubReference("ok", UrlParamEnum.merger.getName(), "default"));
+        }
+        BroadcastHaStrategy<Sleeper> strategy = new BroadcastHaStrategy<>();
+        strategy.setUrl(RpcTestSupport.newUrl(UrlParamEnum.merger.getName(), "count"));
+
+        DefaultRequest request = RpcTestSupport.newSleepRequest(0);
+        Response response = strategy.call(request, ForkingHaStrategyTest.newLoadBalance(stubs));
+
+        assertEquals(3, response.getResult());
+        Set<Long> requestIds = new HashSet<>();
+        for (StubReference stub : stubs) {
+            for (Request copy : stub.getRequests()) {
+                assertNotSame(request, copy);
+                requestIds.add(copy.getRequestId());
+            }
+        }
+        assertEquals(3, requestIds.size());
+        assertNull(request.getAttachments().get("reference"));
+    }
+}
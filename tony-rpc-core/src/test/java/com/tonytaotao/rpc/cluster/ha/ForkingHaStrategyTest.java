@@ -0,0 +1,76 @@
+package com.tonytaotao.rpc.cluster.ha;
+
+import com.tonytaotao.rpc.RpcTestSupport;
+import com.tonytaotao.rpc.RpcTestSupport.Sleeper;
+import com.tonytaotao.rpc.cluster.StubReference;
+import com.tonytaotao.rpc.cluster.loadbalance.RandomLoadBalance;
+import com.tonytaotao.rpc.common.UrlParamEnum;
+import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
+import com.tonytaotao.rpc.core.reference.Reference;
+import com.tonytaotao.rpc.core.request.DefaultRequest;
+import com.tonytaotao.rpc.core.request.Request;
+import com.tonytaotao.rpc.core.response.Response;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+public class ForkingHaStrategyTest {
+
+    @Test
+    public void forksReadFromConsumerUrl() {
+        List<StubReference> stubs = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            // 服务端url上的forks不生效
+            stubs.add(new StubReference("ok", UrlParamEnum.forks.getName(), "1"));
+        }
+        ForkingHaStrategy<Sleeper> strategy = new ForkingHaStrategy<>();
+        strategy.setUrl(RpcTestSupport.newUrl(UrlParamEnum.forks.getName(), "3"));
+
+        DefaultRequest request = RpcTestSupport.newSleepRequest(0);
+        Response response = strategy.call(request, newLoadBalance(stubs));
+
+        assertEquals("ok", response.getResult());
+        Set<Long> requestIds = new HashSet<>();
+        int called = 0;
+        for (StubReference stub : stubs) {
+            for (Request forkRequest : stub.getRequests()) {
+                called++;
+                assertNotSame(request, forkRequest);
+                requestIds.add(forkRequest.getRequestId());
+            }
+        }
+        assertEquals(3, called);
+        assertEquals(3, requestIds.size());
+        // 原请求不被Reference修改
+        assertNull(request.getAttachments().get("reference"));
+    }
+
+    @Test
+    public void allForksFail() {
+        List<StubReference> stubs = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            stubs.add(new StubReference(new FrameworkRpcException("fork " + i)));
+        }
+        ForkingHaStrategy<Sleeper> strategy = new ForkingHaStrategy<>();
+        strategy.setUrl(RpcTestSupport.newUrl(UrlParamEnum.forks.getName(), "2"));
+
+        Response response = strategy.call(RpcTestSupport.newSleepRequest(0), newLoadBalance(stubs));
+
+        assertEquals(FrameworkRpcException.class, response.getException().getClass());
+        assertEquals(1, stubs.get(0).getRequests().size());
+        assertEquals(1, stubs.get(1).getRequests().size());
+    }
+
+    static RandomLoadBalance<Sleeper> newLoadBalance(List<StubReference> stubs) {
+        RandomLoadBalance<Sleeper> loadBalance = new RandomLoadBalance<>();
+        loadBalance.setReferences(new ArrayList<Reference<Sleeper>>(stubs));
+        return loadBalance;
+    }
+}
@@ -0,0 +1,111 @@
+package com.tonytaotao.rpc.cluster.ha;
+
+import com.tonytaotao.rpc.RpcTestSupport;
+import com.tonytaotao.rpc.RpcTestSupport.Sleeper;
+import com.tonytaotao.rpc.cluster.LoadBalance;
+import com.tonytaotao.rpc.common.URL;
+import com.tonytaotao.rpc.common.UrlParamEnum;
+import com.tonytaotao.rpc.core.reference.DefaultRpcReference;
+import com.tonytaotao.rpc.core.reference.Reference;
+import com.tonytaotao.rpc.core.request.Request;
+import com.tonytaotao.rpc.core.response.Response;
+import com.tonytaotao.rpc.core.response.future.ResponseFuture;
+import com.tonytaotao.rpc.netty.server.DefaultNettyServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HedgedHaStrategyTest {
+
+    private static final int TIMEOUT = 300;
+
+    private DefaultNettyServer server;
+    private List<Reference<Sleeper>> references = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        URL url = RpcTestSupport.newUrl(UrlParamEnum.requestTimeout.getName(), String.valueOf(TIMEOUT));
+        server = RpcTestSupport.openServer(url);
+        // 两个Reference连接同一个服务端，对冲请求发往另一个Reference
+        for (int i = 0; i < 2; i++) {
+            DefaultRpcReference<Sleeper> reference = new DefaultRpcReference<>(Sleeper.class, url.clone0(), url);
+            reference.init();
+            references.add(reference);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (Reference<Sleeper> reference : references) {
+            reference.destroy();
+        }
+        server.close();
+    }
+
+    /**
+     * 对冲在原请求发出约200ms后发送，只能使用剩余约100ms的时间，原请求与对冲请求都在原超时时间内结束
+     */
+    @Test
+    public void hedgeFinishesWithinOriginalTimeout() throws Exception {
+        HedgedHaStrategy<Sleeper> strategy = new HedgedHaStrategy<>();
+        LoadBalance<Sleeper> loadBalance = new AlternateLoadBalance<>(references);
+
+        // 100个耗时约200ms的样本，使对冲的分位值约为200ms
+        for (int round = 0; round < 5; round++) {
+            List<ResponseFuture<Response>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(strategy.callAsync(RpcTestSupport.newSleepRequest(200), loadBalance));
+            }
+            for (ResponseFuture<Response> future : futures) {
+                assertEquals("slept:200", future.get().getResult());
+            }
+        }
+
+        long start = System.nanoTime();
+        ResponseFuture<Response> future = strategy.callAsync(RpcTestSupport.newSleepRequest(1000), loadBalance);
+        try {
+            future.get();
+        } catch (RuntimeException e) {
+            // 原请求与对冲请求都超时
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertFalse(future.isSuccess());
+        assertEquals(2, ((AlternateLoadBalance<Sleeper>) loadBalance).selected.get() - 100);
+        assertTrue("elapsed " + elapsed + "ms", elapsed < TIMEOUT + 100);
+    }
+
+    /** 依次轮流选择，保证对冲时选到另一个Reference **/
+    private static class AlternateLoadBalance<T> implements LoadBalance<T> {
+        private final AtomicInteger selected = new AtomicInteger();
+        private volatile List<Reference<T>> references;
+
+        AlternateLoadBalance(List<Reference<T>> references) {
+            this.references = references;
+        }
+
+        @Override
+        public void setReferences(List<Reference<T>> references) {
+            this.references = references;
+        }
+
+        @Override
+        public Reference<T> select(Request request) {
+            return references.get(selected.getAndIncrement() % references.size());
+        }
+
+        @Override
+        public List<Reference<T>> getReferences() {
+            return references;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.tonytaotao.rpc.cluster.loadbalance;
+
+import com.tonytaotao.rpc.RpcTestSupport;
+import com.tonytaotao.rpc.RpcTestSupport.Sleeper;
+import com.tonytaotao.rpc.cluster.StubReference;
+import com.tonytaotao.rpc.common.exception.ServiceRpcException;
+import com.tonytaotao.rpc.core.reference.Reference;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConsistentHashLoadBalanceTest {
+
+    private static final int KEYS = 1000;
+
+    @Test(expected = ServiceRpcException.class)
+    public void emptyReferences() {
+        ConsistentHashLoadBalance<Sleeper> loadBalance = new ConsistentHashLoadBalance<>();
+        loadBalance.setReferences(Collections.emptyList());
+        loadBalance.select(RpcTestSupport.newSleepRequest(0));
+    }
+
+    @Test
+    public void sameKeySameReference() {
+        ConsistentHashLoadBalance<Sleeper> loadBalance = new ConsistentHashLoadBalance<>();
+        loadBalance.setReferences(newReferences(4));
+
+        Map<Reference<Sleeper>, Integer> counts = new HashMap<>();
+        for (int key = 0; key < KEYS; key++) {
+            Reference<Sleeper> reference = loadBalance.select(RpcTestSupport.newSleepRequest(key));
+            for (int i = 0; i < 3; i++) {
+                assertSame(reference, loadBalance.select(RpcTestSupport.newSleepRequest(key)));
+            }
+            counts.merge(reference, 1, Integer::sum);
+        }
+
+        // 每个Reference 160个虚拟节点，各自分到的key不会过于集中
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(String.valueOf(counts.values()), count > KEYS / 8);
+        }
+    }
+
+    /** 新增节点只接走部分key，下线节点的key分散到其余节点，其余key不变 **/
+    @Test
+    public void referenceChangesMoveFewKeys() {
+        List<Reference<Sleeper>> references = newReferences(5);
+        ConsistentHashLoadBalance<Sleeper> loadBalance = new ConsistentHashLoadBalance<>();
+        loadBalance.setReferences(references.subList(0, 4));
+        Reference<Sleeper>[] before = selectAll(loadBalance);
+
+        loadBalance.setReferences(references);
+        Reference<Sleeper>[] added = selectAll(loadBalance);
+        int moved = 0;
+        for (int key = 0; key < KEYS; key++) {
+            if (added[key] != before[key]) {
+                assertSame(references.get(4), added[key]);
+                moved++;
+            }
+        }
+        assertTrue(moved > 0 && moved < KEYS / 2);
+
+        Reference<Sleeper> removed = references.get(1);
+        List<Reference<Sleeper>> remaining = new ArrayList<>(references);
+        remaining.remove(removed);
+        loadBalance.setReferences(remaining);
+        Reference<Sleeper>[] after = selectAll(loadBalance);
+        for (int key = 0; key < KEYS; key++) {
+            if (added[key] != removed) {
+                assertSame(added[key], after[key]);
+            }
+        }
+
+        // 归并得到的环与重新计算的环一致
+        ConsistentHashLoadBalance<Sleeper> rebuilt = new ConsistentHashLoadBalance<>();
+        rebuilt.setReferences(remaining);
+        Reference<Sleeper>[] expected = selectAll(rebuilt);
+        for (int key = 0; key < KEYS; key++) {
+            assertSame(expected[key], after[key]);
+        }
+    }
+
+    /** 节点活跃调用数超过容量时溢出到环上的下一个节点，负载恢复后回到原节点 **/
+    @Test
+    public void boundedLoadOverflow() throws Exception {
+        List<Reference<Sleeper>> references = newReferences(3);
+        ConsistentHashLoadBalance<Sleeper> loadBalance = new ConsistentHashLoadBalance<>();
+        loadBalance.setReferences(references);
+
+        StubReference home = (StubReference) loadBalance.select(RpcTestSupport.newSleepRequest(7));
+        home.setActiveCount(100);
+        // 总活跃调用数按间隔采样
+        Thread.sleep(5);
+        Reference<Sleeper> overflow = loadBalance.select(RpcTestSupport.newSleepRequest(7));
+        assertNotSame(home, overflow);
+        assertSame(overflow, loadBalance.select(RpcTestSupport.newSleepRequest(7)));
+
+        home.setActiveCount(0);
+        Thread.sleep(5);
+        assertSame(home, loadBalance.select(RpcTestSupport.newSleepRequest(7)));
+    }
+
+    @Test
+    public void hashArguments() {
+        ConsistentHashLoadBalance<Sleeper> loadBalance = new ConsistentHashLoadBalance<>();
+        loadBalance.setUrl(RpcTestSupport.newUrl("hashArguments", "1"));
+        loadBalance.setReferences(newReferences(4));
+
+        // 参数个数不足时按null计算，所有请求落到同一个节点
+        Set<Reference<Sleeper>> selected = new HashSet<>();
+        for (int key = 0; key < 100; key++) {
+            selected.add(loadBalance.select(RpcTestSupport.newSleepRequest(key)));
+        }
+        assertEquals(1, selected.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Reference<Sleeper>[] selectAll(ConsistentHashLoadBalance<Sleeper> loadBalance) {
+        Reference<Sleeper>[] result = (Reference<Sleeper>[]) new Reference<?>[KEYS];
+        for (int key = 0; key < KEYS; key++) {
+            result[key] = loadBalance.select(RpcTestSupport.newSleepRequest(key));
+        }
+        return result;
+    }
+
+    /** 虚拟节点由host:port计算，随机端口重复时重新生成 **/
+    static List<Reference<Sleeper>> newReferences(int count) {
+        List<Reference<Sleeper>> references = new ArrayList<>();
+        Set<Integer> ports = new HashSet<>();
+        while (references.size() < count) {
+            StubReference reference = new StubReference(references.size());
+            if (ports.add(reference.getServiceUrl().getPort())) {
+                references.add(reference);
+            }
+        }
+        return references;
+    }
+}
@@ -0,0 +1,70 @@
+package com.tonytaotao.rpc.cluster.loadbalance;
+
+import com.tonytaotao.rpc.RpcTestSupport;
+import com.tonytaotao.rpc.RpcTestSupport.Sleeper;
+import com.tonytaotao.rpc.cluster.StubReference;
+import com.tonytaotao.rpc.common.exception.ServiceRpcException;
+import com.tonytaotao.rpc.core.reference.Reference;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LeastActiveLoadBalanceTest {
+
+    @Test(expected = ServiceRpcException.class)
+    public void emptyReferences() {
+        LeastActiveLoadBalance<Sleeper> loadBalance = new LeastActiveLoadBalance<>();
+        loadBalance.setReferences(Collections.emptyList());
+        loadBalance.select(RpcTestSupport.newSleepRequest(0));
+    }
+
+    /** 两个Reference时每次都比较两者，总是选择活跃调用少的 **/
+    @Test
+    public void prefersFewerActiveCalls() {
+        StubReference busy = new StubReference("busy");
+        StubReference idle = new StubReference("idle");
+        busy.setActiveCount(10);
+
+        LeastActiveLoadBalance<Sleeper> loadBalance = new LeastActiveLoadBalance<>();
+        loadBalance.setReferences(Arrays.<Reference<Sleeper>>asList(busy, idle));
+        for (int i = 0; i < 100; i++) {
+            assertSame(idle, loadBalance.select(RpcTestSupport.newSleepRequest(0)));
+        }
+    }
+
+    @Test
+    public void prefersAvailable() {
+        StubReference down = new StubReference("down");
+        StubReference up = new StubReference("up");
+        down.setAvailable(false);
+        up.setActiveCount(10);
+
+        LeastActiveLoadBalance<Sleeper> loadBalance = new LeastActiveLoadBalance<>();
+        loadBalance.setReferences(Arrays.<Reference<Sleeper>>asList(down, up));
+        for (int i = 0; i < 100; i++) {
+            assertSame(up, loadBalance.select(RpcTestSupport.newSleepRequest(0)));
+        }
+    }
+
+    /** 最忙的Reference不会被选中：两个候选中它总是较忙的一个 **/
+    @Test
+    public void neverSelectsBusiest() {
+        List<Reference<Sleeper>> references = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            StubReference reference = new StubReference(i);
+            reference.setActiveCount(i);
+            references.add(reference);
+        }
+        LeastActiveLoadBalance<Sleeper> loadBalance = new LeastActiveLoadBalance<>();
+        loadBalance.setReferences(references);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(loadBalance.select(RpcTestSupport.newSleepRequest(0)).activeCount() < 4);
+        }
+    }
+}
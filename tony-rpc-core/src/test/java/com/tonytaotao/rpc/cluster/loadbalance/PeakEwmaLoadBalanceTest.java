@@ -0,0 +1,54 @@
+package com.tonytaotao.rpc.cluster.loadbalance;
+
+import com.tonytaotao.rpc.RpcTestSupport;
+import com.tonytaotao.rpc.RpcTestSupport.Sleeper;
+import com.tonytaotao.rpc.cluster.StubReference;
+import com.tonytaotao.rpc.common.exception.ServiceRpcException;
+import com.tonytaotao.rpc.core.reference.Reference;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertSame;
+
+public class PeakEwmaLoadBalanceTest {
+
+    @Test(expected = ServiceRpcException.class)
+    public void emptyReferences() {
+        PeakEwmaLoadBalance<Sleeper> loadBalance = new PeakEwmaLoadBalance<>();
+        loadBalance.setReferences(Collections.emptyList());
+        loadBalance.select(RpcTestSupport.newSleepRequest(0));
+    }
+
+    @Test
+    public void prefersLowerLatency() {
+        StubReference slow = new StubReference("slow");
+        StubReference fast = new StubReference("fast");
+        slow.getStats().observe(TimeUnit.MILLISECONDS.toNanos(50));
+        fast.getStats().observe(TimeUnit.MILLISECONDS.toNanos(1));
+
+        PeakEwmaLoadBalance<Sleeper> loadBalance = new PeakEwmaLoadBalance<>();
+        loadBalance.setReferences(Arrays.<Reference<Sleeper>>asList(slow, fast));
+        for (int i = 0; i < 100; i++) {
+            assertSame(fast, loadBalance.select(RpcTestSupport.newSleepRequest(0)));
+        }
+    }
+
+    /** 代价为延迟×(活跃调用数+1)，延迟低但积压多的节点代价更高 **/
+    @Test
+    public void weighsLatencyByActiveCalls() {
+        StubReference queued = new StubReference("queued");
+        StubReference idle = new StubReference("idle");
+        queued.getStats().observe(TimeUnit.MILLISECONDS.toNanos(1));
+        idle.getStats().observe(TimeUnit.MILLISECONDS.toNanos(5));
+        queued.setActiveCount(9);
+
+        PeakEwmaLoadBalance<Sleeper> loadBalance = new PeakEwmaLoadBalance<>();
+        loadBalance.setReferences(Arrays.<Reference<Sleeper>>asList(queued, idle));
+        for (int i = 0; i < 100; i++) {
+            assertSame(idle, loadBalance.select(RpcTestSupport.newSleepRequest(0)));
+        }
+    }
+}
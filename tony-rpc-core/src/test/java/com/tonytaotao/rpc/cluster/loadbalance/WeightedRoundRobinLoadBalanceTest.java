@@ -0,0 +1,106 @@
+package com.tonytaotao.rpc.cluster.loadbalance;
+
+import com.tonytaotao.rpc.RpcTestSupport;
+import com.tonytaotao.rpc.RpcTestSupport.Sleeper;
+import com.tonytaotao.rpc.cluster.StubReference;
+import com.tonytaotao.rpc.common.exception.ServiceRpcException;
+import com.tonytaotao.rpc.core.reference.Reference;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class WeightedRoundRobinLoadBalanceTest {
+
+    @Test(expected = ServiceRpcException.class)
+    public void emptyReferences() {
+        WeightedRoundRobinLoadBalance<Sleeper> loadBalance = new WeightedRoundRobinLoadBalance<>();
+        loadBalance.setReferences(Collections.emptyList());
+        loadBalance.select(RpcTestSupport.newSleepRequest(0));
+    }
+
+    /** 与nginx的平滑加权轮询一致：权重5:1:1时序列为 a a b a c a a **/
+    @Test
+    public void smoothSequence() {
+        StubReference a = new StubReference("a", "weight", "5");
+        StubReference b = new StubReference("b", "weight", "1");
+        StubReference c = new StubReference("c", "weight", "1");
+        WeightedRoundRobinLoadBalance<Sleeper> loadBalance = newLoadBalance(a, b, c);
+
+        Reference<?>[] expected = {a, a, b, a, c, a, a};
+        for (int round = 0; round < 3; round++) {
+            for (Reference<?> reference : expected) {
+                assertSame(reference, loadBalance.select(RpcTestSupport.newSleepRequest(0)));
+            }
+        }
+    }
+
+    @Test
+    public void zeroWeight() {
+        StubReference a = new StubReference("a", "weight", "3");
+        StubReference b = new StubReference("b", "weight", "0");
+        Map<Reference<Sleeper>, Integer> counts = count(newLoadBalance(a, b), 100);
+        assertEquals(Integer.valueOf(100), counts.get(a));
+
+        // 全部权重为0时平均分配
+        StubReference c = new StubReference("c", "weight", "0");
+        counts = count(newLoadBalance(b, c), 100);
+        assertEquals(Integer.valueOf(50), counts.get(b));
+        assertEquals(Integer.valueOf(50), counts.get(c));
+    }
+
+    /** 权重没有公约数时按比例缩小调度序列，比例基本不变 **/
+    @Test
+    public void largeWeights() {
+        StubReference a = new StubReference("a", "weight", "3001");
+        StubReference b = new StubReference("b", "weight", "1000");
+        Map<Reference<Sleeper>, Integer> counts = count(newLoadBalance(a, b), 4000);
+        int ratio = Math.round((float) counts.get(a) / counts.get(b));
+        assertEquals(counts.toString(), 3, ratio);
+    }
+
+    /** 预热期内权重按启动时长线性增加，刚启动的节点权重为1 **/
+    @Test
+    public void warmup() {
+        long now = System.currentTimeMillis();
+        StubReference old = new StubReference("old", "weight", "100");
+        StubReference half = new StubReference("half", "weight", "100", "warmup", "60000",
+                "timestamp", String.valueOf(now - 30000));
+        StubReference started = new StubReference("started", "weight", "100", "warmup", "60000",
+                "timestamp", String.valueOf(now + 1000));
+
+        Map<Reference<Sleeper>, Integer> counts = count(newLoadBalance(old, half), 300);
+        assertEquals(Integer.valueOf(200), counts.get(old));
+        assertEquals(Integer.valueOf(100), counts.get(half));
+
+        counts = count(newLoadBalance(old, started), 101);
+        assertEquals(Integer.valueOf(100), counts.get(old));
+        assertEquals(Integer.valueOf(1), counts.get(started));
+
+        // 预热已结束
+        StubReference warm = new StubReference("warm", "weight", "100", "warmup", "60000",
+                "timestamp", String.valueOf(now - 60000));
+        counts = count(newLoadBalance(old, warm), 100);
+        assertTrue(counts.toString(), counts.get(old).equals(counts.get(warm)));
+    }
+
+    private static WeightedRoundRobinLoadBalance<Sleeper> newLoadBalance(StubReference... references) {
+        WeightedRoundRobinLoadBalance<Sleeper> loadBalance = new WeightedRoundRobinLoadBalance<>();
+        loadBalance.setReferences(Arrays.<Reference<Sleeper>>asList(references));
+        return loadBalance;
+    }
+
+    private static Map<Reference<Sleeper>, Integer> count(WeightedRoundRobinLoadBalance<Sleeper> loadBalance, int times) {
+        Map<Reference<Sleeper>, Integer> counts = new HashMap<>();
+        for (int i = 0; i < times; i++) {
+            counts.merge(loadBalance.select(RpcTestSupport.newSleepRequest(0)), 1, Integer::sum);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,102 @@
+package com.tonytaotao.rpc.core.message;
+
+import com.tonytaotao.rpc.RpcTestSupport;
+import com.tonytaotao.rpc.RpcTestSupport.Sleeper;
+import com.tonytaotao.rpc.RpcTestSupport.SleeperImpl;
+import com.tonytaotao.rpc.common.URL;
+import com.tonytaotao.rpc.common.UrlParamEnum;
+import com.tonytaotao.rpc.core.provider.DefaultRpcProvider;
+import com.tonytaotao.rpc.core.provider.Provider;
+import com.tonytaotao.rpc.core.reference.DefaultRpcReference;
+import com.tonytaotao.rpc.core.request.Request;
+import com.tonytaotao.rpc.core.response.Response;
+import com.tonytaotao.rpc.netty.server.DefaultNettyServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 精简协议往返：握手得到服务编号，之后的请求只携带编号，服务端按编号找到服务并补齐接口名和方法名；
+ * 服务端重新导出后编号失效，客户端以普通请求重发并重新握手
+ */
+public class CompactProtocolTest {
+
+    /** 记录服务端收到的请求 **/
+    private static class RecordingMessageHandler extends DefaultMessageHandler {
+        private final List<Request> requests = new CopyOnWriteArrayList<>();
+
+        RecordingMessageHandler(Provider<?> provider) {
+            super(provider);
+        }
+
+        @Override
+        protected Response call(Request request, Provider<?> provider) {
+            requests.add(request);
+            return super.call(request, provider);
+        }
+    }
+
+    private Provider<Sleeper> provider;
+    private RecordingMessageHandler handler;
+    private DefaultNettyServer server;
+    private DefaultRpcReference<Sleeper> reference;
+
+    @Before
+    public void setUp() {
+        URL url = RpcTestSupport.newUrl(UrlParamEnum.compact.getName(), "true");
+        provider = new DefaultRpcProvider<Sleeper>(new SleeperImpl(), url, Sleeper.class);
+        handler = new RecordingMessageHandler(provider);
+        server = new DefaultNettyServer(url, handler);
+        server.open();
+
+        reference = new DefaultRpcReference<>(Sleeper.class, url.clone0(), url);
+        reference.init();
+    }
+
+    @After
+    public void tearDown() {
+        reference.destroy();
+        server.close();
+    }
+
+    @Test
+    public void compactRequestCarriesNames() {
+        Response response = reference.call(RpcTestSupport.newSleepRequest(1));
+
+        assertEquals("slept:1", response.getResult());
+        Request received = handler.requests.get(0);
+        assertTrue(received.getServiceId() > 0);
+        assertEquals(Sleeper.class.getName(), received.getInterfaceName());
+        assertEquals("sleep", received.getMethodName());
+        assertArrayEquals(new Class<?>[]{Integer.class}, received.getParameterTypes());
+        // version、group包含在服务编号中，不随请求发送
+        assertNull(received.getAttachments().get(UrlParamEnum.version.getName()));
+    }
+
+    @Test
+    public void expiredDictionaryFallsBack() throws Exception {
+        assertEquals("slept:1", reference.call(RpcTestSupport.newSleepRequest(1)).getResult());
+
+        // 重新导出，服务编号变化
+        handler.removeProvider(provider);
+        handler.addProvider(provider);
+
+        assertEquals("slept:2", reference.call(RpcTestSupport.newSleepRequest(2)).getResult());
+        Request resent = handler.requests.get(handler.requests.size() - 1);
+        assertEquals(0, resent.getServiceId());
+
+        // 重新握手后恢复精简请求
+        assertEquals("slept:3", reference.callAsync(RpcTestSupport.newSleepRequest(3)).get().getResult());
+        Request compact = handler.requests.get(handler.requests.size() - 1);
+        assertTrue(compact.getServiceId() > 0);
+        assertEquals("sleep", compact.getMethodName());
+    }
+}
@@ -0,0 +1,43 @@
+package com.tonytaotao.rpc.core.message;
+
+import com.tonytaotao.rpc.RpcTestSupport;
+import com.tonytaotao.rpc.RpcTestSupport.Sleeper;
+import com.tonytaotao.rpc.RpcTestSupport.SleeperImpl;
+import com.tonytaotao.rpc.common.Constants;
+import com.tonytaotao.rpc.common.URL;
+import com.tonytaotao.rpc.common.UrlParamEnum;
+import com.tonytaotao.rpc.core.provider.DefaultRpcProvider;
+import com.tonytaotao.rpc.core.request.DefaultRequest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class DefaultMessageHandlerTest {
+
+    private final URL url = RpcTestSupport.newUrl(UrlParamEnum.requestTimeout.getName(), "50");
+    private final DefaultMessageHandler handler = new DefaultMessageHandler(new DefaultRpcProvider<Sleeper>(new SleeperImpl(), url, Sleeper.class));
+
+    @Test
+    public void providerUrlOfNormalRequest() {
+        assertSame(url, handler.getProviderUrl(RpcTestSupport.newSleepRequest(0)));
+
+        DefaultRequest unknown = RpcTestSupport.newSleepRequest(0);
+        unknown.setAttachment(UrlParamEnum.group.getName(), "unknown");
+        assertNull(handler.getProviderUrl(unknown));
+    }
+
+    @Test
+    public void providerUrlOfCompactRequest() {
+        DefaultRequest handshake = RpcTestSupport.newSleepRequest(0);
+        handshake.setType(Constants.REQUEST_HANDSHAKE);
+        ServiceDictionary dictionary = (ServiceDictionary) handler.handle(handshake).getResult();
+
+        DefaultRequest compact = new DefaultRequest();
+        compact.setServiceId(dictionary.getServiceId());
+        assertSame(url, handler.getProviderUrl(compact));
+
+        compact.setServiceId(dictionary.getServiceId() + 1);
+        assertNull(handler.getProviderUrl(compact));
+    }
+}
@@ -0,0 +1,147 @@
+package com.tonytaotao.rpc.core.provider;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ProviderInvokerTest {
+
+    public interface Calculator {
+        int add(int a, int b);
+
+        long add(long a, long b);
+
+        double scale(double value, float factor);
+
+        boolean not(boolean value);
+
+        char upper(char c);
+
+        String join(String separator, String... parts);
+
+        int count(int... values);
+
+        void reset();
+
+        String echo(Object value);
+    }
+
+    public static class CalculatorImpl implements Calculator {
+        private int resets;
+
+        @Override
+        public int add(int a, int b) {
+            return a + b;
+        }
+
+        @Override
+        public long add(long a, long b) {
+            return a + b + 1000;
+        }
+
+        @Override
+        public double scale(double value, float factor) {
+            return value * factor;
+        }
+
+        @Override
+        public boolean not(boolean value) {
+            return !value;
+        }
+
+        @Override
+        public char upper(char c) {
+            return Character.toUpperCase(c);
+        }
+
+        @Override
+        public String join(String separator, String... parts) {
+            return String.join(separator, parts);
+        }
+
+        @Override
+        public int count(int... values) {
+            return values.length;
+        }
+
+        @Override
+        public void reset() {
+            resets++;
+        }
+
+        @Override
+        public String echo(Object value) {
+            return value instanceof Object[] ? Arrays.toString((Object[]) value) : String.valueOf(value);
+        }
+    }
+
+    private final CalculatorImpl impl = new CalculatorImpl();
+    private final ProviderInvoker<Calculator> invoker = new ProviderInvoker<>(Calculator.class, impl);
+
+    @Test
+    public void overloadsResolvedByParameterTypes() throws Throwable {
+        int intAdd = invoker.getMethodIndex("add", new Class<?>[]{int.class, int.class});
+        int longAdd = invoker.getMethodIndex("add", new Class<?>[]{long.class, long.class});
+
+        assertEquals(3, invoker.invoke(intAdd, new Object[]{1, 2}));
+        assertEquals(1003L, invoker.invoke(longAdd, new Object[]{1L, 2L}));
+        assertEquals(-1, invoker.getMethodIndex("add", new Class<?>[]{Integer.class, Integer.class}));
+        assertEquals(-1, invoker.getMethodIndex("missing", null));
+    }
+
+    @Test
+    public void primitivesAreUnboxedAndBoxed() throws Throwable {
+        assertEquals(5.0, invoker.invoke(index("scale", double.class, float.class), new Object[]{2.0, 2.5f}));
+        assertEquals(false, invoker.invoke(index("not", boolean.class), new Object[]{true}));
+        assertEquals('A', invoker.invoke(index("upper", char.class), new Object[]{'a'}));
+    }
+
+    @Test
+    public void voidMethodWithoutArguments() throws Throwable {
+        int reset = invoker.getMethodIndex("reset", null);
+
+        assertNull(invoker.invoke(reset, new Object[0]));
+        assertEquals(reset, invoker.getMethodIndex("reset", new Class<?>[0]));
+        assertEquals(1, impl.resets);
+    }
+
+    /** 可变参数按数组传递，不会被再次包装 **/
+    @Test
+    public void varargsPassedAsArray() throws Throwable {
+        assertEquals("a-b-c", invoker.invoke(index("join", String.class, String[].class), new Object[]{"-", new String[]{"a", "b", "c"}}));
+        assertEquals(3, invoker.invoke(index("count", int[].class), new Object[]{new int[]{1, 2, 3}}));
+        assertEquals(0, invoker.invoke(index("count", int[].class), new Object[]{new int[0]}));
+    }
+
+    /** Object参数收到数组时原样传入 **/
+    @Test
+    public void arrayArgumentForObjectParameter() throws Throwable {
+        assertEquals("[x, y]", invoker.invoke(index("echo", Object.class), new Object[]{new String[]{"x", "y"}}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongArgumentCount() throws Throwable {
+        invoker.invoke(index("add", int.class, int.class), new Object[]{1});
+    }
+
+    @Test
+    public void methodsSortedBySignature() {
+        String[] names = new String[invoker.getMethodCount()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = invoker.getMethods()[i].getName();
+        }
+        String[] sorted = names.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(sorted, names);
+    }
+
+    private int index(String methodName, Class<?>... parameterTypes) {
+        int index = invoker.getMethodIndex(methodName, parameterTypes);
+        assertEquals(false, index < 0);
+        return index;
+    }
+}
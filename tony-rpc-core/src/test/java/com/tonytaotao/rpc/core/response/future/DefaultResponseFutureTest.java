@@ -0,0 +1,153 @@
+package com.tonytaotao.rpc.core.response.future;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DefaultResponseFutureTest {
+
+    @Test
+    public void listenersRunInAddOrder() {
+        DefaultResponseFuture<String> future = new DefaultResponseFuture<>(1000);
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final int index = i;
+            future.addListener(f -> order.add(index));
+        }
+        future.setResult("ok");
+        // 完成后加入的回调直接执行
+        future.addListener(f -> order.add(3));
+
+        assertEquals("[0, 1, 2, 3]", order.toString());
+        assertEquals("ok", future.getNow());
+    }
+
+    @Test
+    public void timedOutWaitersAreUnlinked() throws Exception {
+        DefaultResponseFuture<String> future = new DefaultResponseFuture<>(1000);
+        future.addListener(f -> { });
+        for (int i = 0; i < 1000; i++) {
+            try {
+                future.get(1, TimeUnit.MICROSECONDS);
+                fail();
+            } catch (TimeoutException expected) {
+                // 继续轮询
+            }
+        }
+        // 只剩回调节点
+        assertEquals(1, countWaiters(future));
+
+        future.setResult("ok");
+        assertEquals("ok", future.get(1, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void interruptedWaiterIsUnlinked() throws Exception {
+        final DefaultResponseFuture<String> future = new DefaultResponseFuture<>(1000);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                future.get();
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        });
+        waiter.start();
+        while (countWaiters(future) == 0) {
+            Thread.sleep(1);
+        }
+
+        waiter.interrupt();
+        waiter.join(1000);
+
+        assertTrue(error.get() instanceof InterruptedException);
+        assertEquals(0, countWaiters(future));
+    }
+
+    @Test
+    public void concurrentCompletion() throws Exception {
+        for (int round = 0; round < 200; round++) {
+            final DefaultResponseFuture<Integer> future = new DefaultResponseFuture<>(1000);
+            final int threads = 8;
+            final CyclicBarrier barrier = new CyclicBarrier(threads * 3);
+            final AtomicInteger notified = new AtomicInteger();
+            final AtomicReference<Object> seen = new AtomicReference<>();
+            final CountDownLatch done = new CountDownLatch(threads * 3);
+            final AtomicInteger mismatch = new AtomicInteger();
+
+            for (int i = 0; i < threads; i++) {
+                final int value = i;
+                // 竞争完成
+                start(barrier, done, () -> future.setResult(value));
+                // 无限等待与限时等待(部分会超时并摘除节点)
+                start(barrier, done, () -> {
+                    Integer result = value % 2 == 0 ? future.get() : getQuietly(future);
+                    if (result != null && !seen.compareAndSet(null, result) && !seen.get().equals(result)) {
+                        mismatch.incrementAndGet();
+                    }
+                });
+                start(barrier, done, () -> future.addListener(f -> notified.incrementAndGet()));
+            }
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(0, mismatch.get());
+            assertEquals(threads, notified.get());
+            assertSame(future.getNow(), future.get());
+            assertNull(future.cause());
+        }
+    }
+
+    private static Integer getQuietly(DefaultResponseFuture<Integer> future) throws InterruptedException {
+        try {
+            return future.get(50, TimeUnit.MICROSECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        }
+    }
+
+    private interface Task {
+        void run() throws Exception;
+    }
+
+    private static void start(final CyclicBarrier barrier, final CountDownLatch done, final Task task) {
+        new Thread(() -> {
+            try {
+                barrier.await();
+                task.run();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            } finally {
+                done.countDown();
+            }
+        }).start();
+    }
+
+    /** waiters栈上的节点数，完成后为0 **/
+    private static int countWaiters(DefaultResponseFuture<?> future) throws Exception {
+        Field waitersField = DefaultResponseFuture.class.getDeclaredField("waiters");
+        waitersField.setAccessible(true);
+        Object node = waitersField.get(future);
+        Field nextField = node == null ? null : node.getClass().getDeclaredField("next");
+        int count = 0;
+        while (node != null) {
+            count++;
+            nextField.setAccessible(true);
+            node = nextField.get(node);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,185 @@
+package com.tonytaotao.rpc.netty;
+
+import com.tonytaotao.rpc.RpcTestSupport;
+import com.tonytaotao.rpc.codec.DefaultCodec;
+import com.tonytaotao.rpc.common.Constants;
+import com.tonytaotao.rpc.core.request.DefaultRequest;
+import com.tonytaotao.rpc.core.response.DefaultResponse;
+import com.tonytaotao.rpc.core.response.Response;
+import com.tonytaotao.rpc.serializer.Serializer;
+import com.tonytaotao.rpc.serializer.kryo.KryoSerializer;
+import com.tonytaotao.rpc.serializer.protostuff.ProtostuffSerializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 协议帧：16字节头(魔数、消息类型、序列化标识、requestId、消息体长度) + 消息体，
+ * 消息体长度在编码完成后回填，解码在帧数据的切片上进行
+ */
+public class NettyCodecTest {
+
+    private static final int MAX_CONTENT_LENGTH = 1 << 20;
+
+    private final DefaultCodec codec = new DefaultCodec();
+    private final Serializer serializer = new ProtostuffSerializer();
+
+    @Test
+    public void encoderBackPatchesLength() {
+        ByteBuf frame = encode(RpcTestSupport.newSleepRequest(7));
+        try {
+            assertEquals(Constants.NETTY_MAGIC_TYPE, frame.getShort(0));
+            assertEquals(Constants.FLAG_REQUEST, frame.getByte(2));
+            assertEquals(serializer.getId(), frame.getByte(3));
+            assertEquals(frame.readableBytes() - Constants.HEADER_SIZE, frame.getInt(Constants.HEADER_SIZE - 4));
+        } finally {
+            frame.release();
+        }
+    }
+
+    @Test
+    public void roundTripReleasesFrame() {
+        DefaultRequest request = RpcTestSupport.newSleepRequest(7);
+        ByteBuf frame = encode(request);
+        assertEquals(request.getRequestId().longValue(), frame.getLong(4));
+
+        DefaultRequest decoded = decode(newDecoderChannel(), frame);
+
+        assertEquals(request.getRequestId(), decoded.getRequestId());
+        assertEquals(request.getMethodName(), decoded.getMethodName());
+        assertArrayEquals(request.getArguments(), decoded.getArguments());
+        // 切片在解码后释放，帧读完后累积缓冲区随之释放
+        assertEquals(0, frame.refCnt());
+    }
+
+    /** 帧被拆成两次到达时等待完整的帧 **/
+    @Test
+    public void partialFrame() {
+        ByteBuf frame = encode(RpcTestSupport.newSleepRequest(7));
+        int half = frame.readableBytes() / 2;
+        ByteBuf first = frame.readRetainedSlice(half);
+        ByteBuf second = frame.readRetainedSlice(frame.readableBytes());
+        frame.release();
+
+        EmbeddedChannel channel = newDecoderChannel();
+        channel.writeInbound(first);
+        assertNull(channel.readInbound());
+        channel.writeInbound(second);
+        DefaultRequest decoded = channel.readInbound();
+
+        assertEquals("sleep", decoded.getMethodName());
+        assertEquals(0, first.refCnt());
+        assertEquals(0, second.refCnt());
+        channel.finish();
+    }
+
+    /** 消息体解码失败时切片同样释放，响应帧返回携带异常的响应 **/
+    @Test
+    public void decodeFailureReleasesFrame() {
+        ByteBuf frame = Unpooled.buffer();
+        frame.writeShort(Constants.NETTY_MAGIC_TYPE);
+        frame.writeByte(Constants.FLAG_RESPONSE);
+        frame.writeByte(serializer.getId());
+        frame.writeLong(9L);
+        frame.writeInt(8);
+        frame.writeLong(-1L);
+
+        EmbeddedChannel channel = newDecoderChannel();
+        channel.writeInbound(frame);
+        Response response = channel.readInbound();
+
+        assertEquals(9L, response.getRequestId().longValue());
+        assertNotNull(response.getException());
+        assertEquals(0, frame.refCnt());
+        channel.finish();
+    }
+
+    /** 按协议头中的序列化标识解码，响应沿用对端的序列化方式 **/
+    @Test
+    public void serializerSelectedById() {
+        Serializer kryo = new KryoSerializer();
+        DefaultRequest request = RpcTestSupport.newSleepRequest(7);
+        ByteBuf frame = encode(request, kryo);
+        assertEquals(KryoSerializer.SERIALIZER_ID, frame.getByte(3));
+
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new NettyDecoder(codec, serializer, MAX_CONTENT_LENGTH, Constants.HEADER_SIZE, 4),
+                new NettyEncoder(codec, serializer));
+        channel.writeInbound(frame);
+        DefaultRequest decoded = channel.readInbound();
+        assertEquals(request.getRequestId(), decoded.getRequestId());
+        assertArrayEquals(request.getArguments(), decoded.getArguments());
+        assertEquals(KryoSerializer.SERIALIZER_ID, channel.attr(NettyDecoder.SERIALIZER_KEY).get().getId());
+
+        DefaultResponse response = new DefaultResponse();
+        response.setRequestId(decoded.getRequestId());
+        response.setResult("done");
+        channel.writeOutbound(response);
+        ByteBuf out = channel.readOutbound();
+        try {
+            assertEquals(Constants.FLAG_RESPONSE, out.getByte(2));
+            assertEquals(KryoSerializer.SERIALIZER_ID, out.getByte(3));
+        } finally {
+            out.release();
+        }
+
+        // 同一连接上对端改用默认序列化方式
+        channel.writeInbound(encode(RpcTestSupport.newSleepRequest(7)));
+        assertEquals("sleep", ((DefaultRequest) channel.readInbound()).getMethodName());
+        assertSame(serializer, channel.attr(NettyDecoder.SERIALIZER_KEY).get());
+        channel.finish();
+    }
+
+    /** 未知的序列化标识按解码失败处理，请求帧直接回写异常响应 **/
+    @Test
+    public void unknownSerializerId() {
+        DefaultRequest request = RpcTestSupport.newSleepRequest(7);
+        ByteBuf frame = encode(request);
+        frame.setByte(3, 99);
+
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new NettyDecoder(codec, serializer, MAX_CONTENT_LENGTH, Constants.HEADER_SIZE, 4),
+                new NettyEncoder(codec, serializer));
+        channel.writeInbound(frame);
+        assertNull(channel.readInbound());
+        ByteBuf out = channel.readOutbound();
+        try {
+            assertEquals(Constants.FLAG_RESPONSE, out.getByte(2));
+            assertEquals(request.getRequestId().longValue(), out.getLong(4));
+        } finally {
+            out.release();
+        }
+        assertEquals(0, frame.refCnt());
+        channel.finish();
+    }
+
+    private ByteBuf encode(Object message) {
+        return encode(message, serializer);
+    }
+
+    private ByteBuf encode(Object message, Serializer serializer) {
+        EmbeddedChannel channel = new EmbeddedChannel(new NettyEncoder(codec, serializer));
+        channel.writeOutbound(message);
+        ByteBuf frame = channel.readOutbound();
+        channel.finish();
+        return frame;
+    }
+
+    private EmbeddedChannel newDecoderChannel() {
+        return new EmbeddedChannel(new NettyDecoder(codec, serializer, MAX_CONTENT_LENGTH, Constants.HEADER_SIZE, 4));
+    }
+
+    private static <T> T decode(EmbeddedChannel channel, ByteBuf frame) {
+        channel.writeInbound(frame);
+        T message = channel.readInbound();
+        channel.finish();
+        return message;
+    }
+}
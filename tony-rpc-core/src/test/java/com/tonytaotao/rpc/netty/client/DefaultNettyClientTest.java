@@ -0,0 +1,76 @@
+package com.tonytaotao.rpc.netty.client;
+
+import com.tonytaotao.rpc.RpcTestSupport;
+import com.tonytaotao.rpc.common.URL;
+import com.tonytaotao.rpc.common.UrlParamEnum;
+import com.tonytaotao.rpc.common.exception.TransportRpcException;
+import com.tonytaotao.rpc.core.response.Response;
+import com.tonytaotao.rpc.core.response.future.ResponseFuture;
+import com.tonytaotao.rpc.netty.server.DefaultNettyServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DefaultNettyClientTest {
+
+    private DefaultNettyServer server;
+    private DefaultNettyClient client;
+
+    @Before
+    public void setUp() {
+        // 超时时间足够长，请求只能由关闭或断开结束
+        URL url = RpcTestSupport.newUrl(UrlParamEnum.requestTimeout.getName(), "10000");
+        server = RpcTestSupport.openServer(url);
+        client = new DefaultNettyClient(url);
+        client.open();
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void invoke() throws Exception {
+        assertEquals("slept:1", client.invokeSync(RpcTestSupport.newSleepRequest(1)).getResult());
+        assertEquals("slept:1", client.invokeAsync(RpcTestSupport.newSleepRequest(1)).get().getResult());
+    }
+
+    @Test
+    public void closeFailsPendingRequests() throws Exception {
+        ResponseFuture<Response> future = client.invokeAsync(RpcTestSupport.newSleepRequest(5000));
+        CountDownLatch notified = new CountDownLatch(1);
+        future.addListener(f -> notified.countDown());
+
+        client.close();
+
+        assertTrue(notified.await(1, TimeUnit.SECONDS));
+        assertFalse(future.isSuccess());
+        assertTrue(future.cause() instanceof TransportRpcException);
+        assertTrue(future.cause().getMessage(), future.cause().getMessage().contains("client closed"));
+    }
+
+    @Test
+    public void channelInactiveFailsPendingRequests() throws Exception {
+        ResponseFuture<Response> future = client.invokeAsync(RpcTestSupport.newSleepRequest(5000));
+        CountDownLatch notified = new CountDownLatch(1);
+        future.addListener(f -> notified.countDown());
+        // 等请求写出并在服务端执行，避免断开发生在写出之前
+        Thread.sleep(200);
+
+        server.close();
+
+        assertTrue(notified.await(2, TimeUnit.SECONDS));
+        assertFalse(future.isSuccess());
+        assertTrue(future.cause() instanceof TransportRpcException);
+        assertTrue(future.cause().getMessage(), future.cause().getMessage().contains("channel closed"));
+    }
+}
@@ -0,0 +1,87 @@
+package com.tonytaotao.rpc.netty.server;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void rejectsBeyondLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 10);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.release(0);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    /** 耗时不变说明没有排队，每个窗口增大一次限制 **/
+    @Test
+    public void growsWithoutQueueing() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 4);
+        // 每次保持满并发，release时的并发数不低于限制的一半
+        for (int i = 0; i < 100; i++) {
+            fill(limiter, RTT);
+        }
+        assertEquals(4, limiter.getLimit());
+    }
+
+    /** 耗时远大于最小耗时说明在排队，减小限制但不低于下限。样本数不超过重新探测最小耗时的间隔 **/
+    @Test
+    public void shrinksWhenQueueing() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 100);
+        for (int i = 0; i < 20; i++) {
+            fill(limiter, RTT);
+        }
+        int grown = limiter.getLimit();
+        assertTrue(grown > 10);
+
+        for (int i = 0; i < 10; i++) {
+            fill(limiter, RTT * 10);
+        }
+        assertTrue(limiter.getLimit() < grown);
+        assertTrue(limiter.getLimit() >= 10);
+    }
+
+    @Test
+    public void concurrentRelease() throws Exception {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 64);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    if (limiter.tryAcquire()) {
+                        limiter.release(RTT);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, limiter.getInflight());
+        assertTrue(limiter.getLimit() >= 4 && limiter.getLimit() <= 64);
+    }
+
+    private static void fill(AdaptiveConcurrencyLimiter limiter, long rttNanos) {
+        int acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limiter.release(rttNanos);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.tonytaotao.rpc.proxy.bytecode;
+
+import com.tonytaotao.rpc.common.util.ReflectUtils;
+import com.tonytaotao.rpc.core.extension.ExtensionLoader;
+import com.tonytaotao.rpc.proxy.IndexedInvocationHandler;
+import com.tonytaotao.rpc.proxy.ProxyFactory;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BytecodeProxyFactoryTest {
+
+    public interface Source<T> {
+        T get();
+    }
+
+    public interface Calculator extends Source<String> {
+        int add(int a, int b);
+
+        long add(long a, long b);
+
+        double scale(double value, float factor);
+
+        boolean not(boolean value);
+
+        char upper(char c);
+
+        byte[] reverse(byte[] bytes);
+
+        String join(String separator, String... parts);
+
+        void reset();
+
+        void check(String value) throws IOException;
+
+        @Override
+        String get();
+
+        default short twice(short value) {
+            return (short) (value * 2);
+        }
+    }
+
+    interface Hidden {
+        int value();
+    }
+
+    public static class CalculatorImpl implements Calculator {
+        private int resets;
+
+        @Override
+        public int add(int a, int b) {
+            return a + b;
+        }
+
+        @Override
+        public long add(long a, long b) {
+            return a + b + 1;
+        }
+
+        @Override
+        public double scale(double value, float factor) {
+            return value * factor;
+        }
+
+        @Override
+        public boolean not(boolean value) {
+            return !value;
+        }
+
+        @Override
+        public char upper(char c) {
+            return Character.toUpperCase(c);
+        }
+
+        @Override
+        public byte[] reverse(byte[] bytes) {
+            byte[] result = new byte[bytes.length];
+            for (int i = 0; i < bytes.length; i++) {
+                result[i] = bytes[bytes.length - 1 - i];
+            }
+            return result;
+        }
+
+        @Override
+        public String join(String separator, String... parts) {
+            return String.join(separator, parts);
+        }
+
+        @Override
+        public void reset() {
+            resets++;
+        }
+
+        @Override
+        public void check(String value) throws IOException {
+            if (value == null) {
+                throw new IOException("null value");
+            }
+        }
+
+        @Override
+        public String get() {
+            return "source";
+        }
+
+        @Override
+        public short twice(short value) {
+            return (short) (value * 3);
+        }
+    }
+
+    /** 按方法下标调用目标对象，记录最后一次分发的下标 **/
+    static class TargetHandler implements IndexedInvocationHandler {
+        private final Object target;
+        private final Method[] methods;
+        private int lastIndex = -1;
+        private int reflectCalls;
+
+        TargetHandler(Class<?> clz, Object target) {
+            this.target = target;
+            this.methods = ReflectUtils.getMethodsSortedBySignature(clz);
+        }
+
+        @Override
+        public Object invoke(int methodIndex, Object[] args) throws Throwable {
+            lastIndex = methodIndex;
+            try {
+                return methods[methodIndex].invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            reflectCalls++;
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        Method lastMethod() {
+            return methods[lastIndex];
+        }
+    }
+
+    private final ProxyFactory factory = ExtensionLoader.getExtensionLoader(ProxyFactory.class).getExtension("bytecode");
+
+    @Test
+    public void dispatchesByIndex() throws Exception {
+        CalculatorImpl target = new CalculatorImpl();
+        TargetHandler handler = new TargetHandler(Calculator.class, target);
+        Calculator proxy = factory.getProxy(Calculator.class, handler);
+
+        assertFalse(Proxy.isProxyClass(proxy.getClass()));
+        assertEquals(3, proxy.add(1, 2));
+        assertEquals(Calculator.class.getMethod("add", int.class, int.class), handler.lastMethod());
+        assertEquals(4L, proxy.add(1L, 2L));
+        assertEquals(Calculator.class.getMethod("add", long.class, long.class), handler.lastMethod());
+        assertEquals(5.0, proxy.scale(2.0, 2.5f), 0.0);
+        assertTrue(proxy.not(false));
+        assertEquals('A', proxy.upper('a'));
+        assertArrayEquals(new byte[]{3, 2, 1}, proxy.reverse(new byte[]{1, 2, 3}));
+        assertEquals("a-b-c", proxy.join("-", "a", "b", "c"));
+        assertEquals("a", proxy.join("-", "a"));
+
+        proxy.reset();
+        proxy.reset();
+        assertEquals(2, target.resets);
+
+        // default方法同样分发到handler
+        assertEquals(9, proxy.twice((short) 3));
+        assertEquals(0, handler.reflectCalls);
+    }
+
+    /** 泛型接口继承生成 Object get() 与 String get() 两个方法，都能分发 **/
+    @Test
+    public void genericBridgeMethod() {
+        Calculator proxy = factory.getProxy(Calculator.class, new TargetHandler(Calculator.class, new CalculatorImpl()));
+
+        assertEquals("source", proxy.get());
+        Source<String> source = proxy;
+        assertEquals("source", source.get());
+    }
+
+    @Test
+    public void declaredExceptionPassesThrough() throws Exception {
+        Calculator proxy = factory.getProxy(Calculator.class, new TargetHandler(Calculator.class, new CalculatorImpl()));
+
+        proxy.check("ok");
+        try {
+            proxy.check(null);
+            fail();
+        } catch (IOException e) {
+            assertEquals("null value", e.getMessage());
+        }
+    }
+
+    /** toString、equals、hashCode由生成类从Object继承，不进行远程调用 **/
+    @Test
+    public void objectMethodsAreLocal() {
+        TargetHandler handler = new TargetHandler(Calculator.class, new CalculatorImpl());
+        Calculator proxy = factory.getProxy(Calculator.class, handler);
+        Calculator other = factory.getProxy(Calculator.class, handler);
+
+        assertSame(proxy.getClass(), other.getClass());
+        assertEquals(proxy, proxy);
+        assertNotEquals(proxy, other);
+        assertEquals(System.identityHashCode(proxy), proxy.hashCode());
+        assertTrue(proxy.toString().contains("$TonyRpcProxy"));
+        assertEquals(-1, handler.lastIndex);
+        assertEquals(0, handler.reflectCalls);
+    }
+
+    @Test
+    public void fallbackForPlainHandler() {
+        CalculatorImpl target = new CalculatorImpl();
+        InvocationHandler handler = (proxy, method, args) -> method.invoke(target, args);
+        Calculator proxy = factory.getProxy(Calculator.class, handler);
+
+        assertTrue(Proxy.isProxyClass(proxy.getClass()));
+        assertEquals(3, proxy.add(1, 2));
+    }
+
+    /** 生成类在单独的ClassLoader中，不能访问非public接口 **/
+    @Test
+    public void fallbackForNonPublicInterface() {
+        TargetHandler handler = new TargetHandler(Hidden.class, (Hidden) () -> 42);
+        Hidden proxy = factory.getProxy(Hidden.class, handler);
+
+        assertTrue(Proxy.isProxyClass(proxy.getClass()));
+        assertEquals(42, proxy.value());
+        assertEquals(1, handler.reflectCalls);
+    }
+}
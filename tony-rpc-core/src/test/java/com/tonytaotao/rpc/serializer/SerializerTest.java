@@ -0,0 +1,125 @@
+package com.tonytaotao.rpc.serializer;
+
+import com.tonytaotao.rpc.common.Constants;
+import com.tonytaotao.rpc.common.exception.FrameworkRpcException;
+import com.tonytaotao.rpc.core.request.DefaultRequest;
+import com.tonytaotao.rpc.core.response.DefaultResponse;
+import com.tonytaotao.rpc.serializer.kryo.KryoSerializer;
+import com.tonytaotao.rpc.serializer.protostuff.ProtostuffSerializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SerializerTest {
+
+    private final List<Serializer> serializers = Arrays.asList(new ProtostuffSerializer(), new KryoSerializer());
+
+    @Test
+    public void requestRoundTrip() throws Exception {
+        // 与ReferenceInvocationHandler一致：多个请求共享同一个attachments
+        Map<String, String> shared = new HashMap<>();
+        shared.put("version", "1.0.0");
+        shared.put("group", "default_rpc");
+
+        for (Serializer serializer : serializers) {
+            DefaultRequest request = newRequest(shared);
+
+            assertRequest(serializer, request, serializer.deserialize(serializer.serialize(request), DefaultRequest.class));
+
+            ByteBuf buf = Unpooled.buffer();
+            try {
+                serializer.serialize(request, buf);
+                assertRequest(serializer, request, serializer.deserialize(buf, DefaultRequest.class));
+            } finally {
+                buf.release();
+            }
+        }
+    }
+
+    /** 从socket读到的数据在直接内存中，消息体前有协议头 **/
+    @Test
+    public void directBufferRoundTrip() throws Exception {
+        for (Serializer serializer : serializers) {
+            // 小于和大于解码复用数组上限的消息
+            for (int size : new int[]{16, 100 * 1024}) {
+                DefaultRequest request = newRequest(new HashMap<>());
+                request.setArguments(new Object[]{new String(new char[size]).replace('\0', 'x'), size});
+
+                ByteBuf buf = Unpooled.directBuffer();
+                try {
+                    buf.writeLong(0L);
+                    serializer.serialize(request, buf);
+                    buf.skipBytes(8);
+                    assertRequest(serializer, request, serializer.deserialize(buf, DefaultRequest.class));
+                } finally {
+                    buf.release();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void responseRoundTrip() throws Exception {
+        for (Serializer serializer : serializers) {
+            DefaultResponse response = new DefaultResponse();
+            response.setRequestId(1L);
+            response.setResult("hello");
+            response.setProcessTime(3);
+
+            DefaultResponse result = serializer.deserialize(serializer.serialize(response), DefaultResponse.class);
+            assertEquals(serializer.getClass().getSimpleName(), response.getRequestId(), result.getRequestId());
+            assertEquals(serializer.getClass().getSimpleName(), "hello", result.getResult());
+        }
+    }
+
+    /** 协议头中的序列化标识对应已注册的扩展 **/
+    @Test
+    public void serializerById() {
+        assertTrue(SerializerUtils.getSerializer(ProtostuffSerializer.SERIALIZER_ID) instanceof ProtostuffSerializer);
+        assertTrue(SerializerUtils.getSerializer(KryoSerializer.SERIALIZER_ID) instanceof KryoSerializer);
+        // 同一个标识总是返回同一个实例
+        assertTrue(SerializerUtils.getSerializer(KryoSerializer.SERIALIZER_ID) == SerializerUtils.getSerializer(KryoSerializer.SERIALIZER_ID));
+    }
+
+    @Test(expected = FrameworkRpcException.class)
+    public void unknownSerializerId() {
+        SerializerUtils.getSerializer((byte) -1);
+    }
+
+    private static DefaultRequest newRequest(Map<String, String> attachments) {
+        DefaultRequest request = new DefaultRequest();
+        request.setRequestId(1L);
+        request.setInterfaceName("com.tonytaotao.rpc.demo.api.DemoService");
+        request.setMethodName("hello");
+        request.setParameterTypes(new Class[]{String.class, int.class});
+        request.setArguments(new Object[]{"tony", 1});
+        request.setType(Constants.REQUEST_SYNC);
+        request.setTimeout(500);
+        request.setSharedAttachments(attachments);
+        return request;
+    }
+
+    private static void assertRequest(Serializer serializer, DefaultRequest expected, DefaultRequest actual) {
+        String name = serializer.getClass().getSimpleName();
+        assertEquals(name, expected.getRequestId(), actual.getRequestId());
+        assertEquals(name, expected.getInterfaceName(), actual.getInterfaceName());
+        assertEquals(name, expected.getMethodName(), actual.getMethodName());
+        assertArrayEquals(name, expected.getParameterTypes(), actual.getParameterTypes());
+        assertArrayEquals(name, expected.getArguments(), actual.getArguments());
+        assertEquals(name, expected.getTimeout(), actual.getTimeout());
+        assertEquals(name, expected.getAttachments(), actual.getAttachments());
+
+        // 服务端会向反序列化得到的attachments写入
+        actual.setAttachment("traceId", "1");
+        assertEquals(name, "1", actual.getAttachment("traceId"));
+    }
+}